@@ -0,0 +1,102 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 簡易負荷試験（JDK だけで動く）
+//   java loadtest/LoadTest.java [baseUrl] [同時クライアント数] [秒数] [パス,...]
+//   例: java loadtest/LoadTest.java http://localhost:8080 1000 30 /api/songs?limit=20,/api/stats/categories
+// 各クライアントは仮想スレッドで、前の応答を受け取ったら次のリクエストを送る（クローズドループ）
+public class LoadTest {
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+    String[] paths = (args.length > 3 ? args[3] : "/api/songs?limit=20,/api/stats/categories").split(",");
+
+    HttpClient client = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    List<HttpRequest> requests = Arrays.stream(paths)
+        .map(p -> HttpRequest.newBuilder(URI.create(baseUrl + p)).timeout(Duration.ofSeconds(30)).GET().build())
+        .toList();
+
+    AtomicLong ok = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    List<long[]> latencies = new ArrayList<>();
+    long warmupEnd = System.nanoTime() + Duration.ofSeconds(Math.min(5, seconds / 5)).toNanos();
+    long end = warmupEnd + Duration.ofSeconds(seconds).toNanos();
+    CountDownLatch done = new CountDownLatch(clients);
+
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int c = 0; c < clients; c++) {
+        int offset = c;
+        long[] samples = new long[1 << 16];
+        synchronized (latencies) {
+          latencies.add(samples);
+        }
+        executor.submit(() -> {
+          int n = 0;
+          int i = offset;
+          try {
+            while (System.nanoTime() < end) {
+              HttpRequest request = requests.get(i++ % requests.size());
+              long start = System.nanoTime();
+              try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                boolean measured = start >= warmupEnd;
+                if (response.statusCode() < 400) {
+                  if (measured) {
+                    ok.incrementAndGet();
+                    if (n < samples.length) {
+                      samples[n++] = System.nanoTime() - start;
+                    }
+                  }
+                } else if (measured) {
+                  failed.incrementAndGet();
+                }
+              } catch (Exception e) {
+                if (start >= warmupEnd) {
+                  failed.incrementAndGet();
+                }
+              }
+            }
+          } finally {
+            samples[samples.length - 1] = n; // 件数を末尾に入れておく
+            done.countDown();
+          }
+        });
+      }
+      done.await();
+    }
+
+    long total = latencies.stream().mapToLong(s -> s[s.length - 1]).sum();
+    long[] all = new long[(int) total];
+    int pos = 0;
+    for (long[] samples : latencies) {
+      int n = (int) samples[samples.length - 1];
+      System.arraycopy(samples, 0, all, pos, n);
+      pos += n;
+    }
+    Arrays.sort(all);
+    System.out.printf("clients=%d duration=%ds paths=%s%n", clients, seconds, String.join(",", paths));
+    System.out.printf("ok=%d failed=%d throughput=%.0f req/s%n", ok.get(), failed.get(), ok.get() / (double) seconds);
+    if (all.length > 0) {
+      System.out.printf("latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+          percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), all[all.length - 1] / 1e6);
+    }
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.SongRepertoireApplication;
+import com.example.songrepertoire.service.RandomSongPicker;
+import com.example.songrepertoire.service.SongSearchIndex;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// 組み込み H2（インメモリ）でアプリを起動し、曲データを投入する
+final class BenchApplication {
+
+  private BenchApplication() {
+  }
+
+  static ConfigurableApplicationContext start(int songs) throws InterruptedException {
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    ConfigurableApplicationContext context = SpringApplication.run(SongRepertoireApplication.class,
+        "--server.port=0",
+        "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "--spring.datasource.driver-class-name=org.h2.Driver",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.datasource.hikari.connection-init-sql=SELECT 1",
+        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "--spring.jpa.hibernate.ddl-auto=create",
+        "--spring.jpa.show-sql=false",
+        "--app.jacket.dir=target/bench-jackets",
+        "--logging.level.root=WARN");
+    // 起動時に始まる検索・選曲用の索引の構築（空の DB）が終わってから投入する
+    // 投入したデータは索引に載らないが、ここで測る処理は索引を使わない
+    awaitIndexes(context);
+    SongFixtures.insert(context.getBean(JdbcTemplate.class), songs, 42);
+    return context;
+  }
+
+  private static void awaitIndexes(ConfigurableApplicationContext context) throws InterruptedException {
+    SongSearchIndex searchIndex = context.getBean(SongSearchIndex.class);
+    RandomSongPicker picker = context.getBean(RandomSongPicker.class);
+    while (!searchIndex.isReady() || !picker.isReady()) {
+      Thread.sleep(50);
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.songrepertoire.bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+
+// 書き出した内容を捨てる出力先（書き出しが最適化で消されないよう Blackhole に渡す）
+final class BlackholeOutputStream extends OutputStream {
+  private final Blackhole blackhole;
+
+  BlackholeOutputStream(Blackhole blackhole) {
+    this.blackhole = blackhole;
+  }
+
+  @Override
+  public void write(int b) {
+    blackhole.consume(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    blackhole.consume(len);
+  }
+}
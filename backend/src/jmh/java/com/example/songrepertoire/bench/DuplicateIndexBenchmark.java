@@ -0,0 +1,64 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.service.SongDuplicateIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// 重複判定（登録時の類似曲の検索と、全曲の重複レポート）
+// 曲の 5% は既存の曲の表記ゆれ（全角・空白・客演表記）として登録する
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DuplicateIndexBenchmark {
+
+  @Param({"1000", "100000"})
+  public int songs;
+
+  private SongDuplicateIndex index;
+  private List<Song> fixtures;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    fixtures = SongFixtures.songs(songs, 42);
+    SplittableRandom random = new SplittableRandom(7);
+    for (Song song : fixtures) {
+      if (random.nextInt(20) == 0) {
+        Song original = fixtures.get(random.nextInt(fixtures.size()));
+        song.setTitle(toFullWidth(original.getTitle()) + " ");
+        song.setArtist(original.getArtist() + " feat. ゲスト");
+      }
+    }
+    index = new SongDuplicateIndex(null);
+    fixtures.forEach(index::index);
+  }
+
+  private static String toFullWidth(String text) {
+    StringBuilder sb = new StringBuilder(text.length());
+    for (char c : text.toCharArray()) {
+      sb.append(c >= '0' && c <= '9' ? (char) (c - '0' + '０') : c);
+    }
+    return sb.toString();
+  }
+
+  // 登録・インポートの1曲ごとの判定
+  @Benchmark
+  public List<SongDuplicateIndex.Match> findSimilar() {
+    Song song = fixtures.get(next++ % fixtures.size());
+    return index.findSimilar(null, song.getTitle(), song.getArtist(), null);
+  }
+
+  // GET /api/songs/duplicates
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<List<Long>> findGroups() {
+    return index.findGroups(null);
+  }
+}
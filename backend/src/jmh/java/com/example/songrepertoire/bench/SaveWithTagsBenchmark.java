@@ -0,0 +1,48 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.service.SongService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// タグ付きの曲登録（タグ解決・INSERT・コミット後のイベント処理まで）
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SaveWithTagsBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int songs;
+
+  private ConfigurableApplicationContext context;
+  private SongService songService;
+  private SplittableRandom random;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws InterruptedException {
+    context = BenchApplication.start(songs);
+    songService = context.getBean(SongService.class);
+    random = new SplittableRandom(7);
+    next = songs + 1;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Song saveWithTags() {
+    Song song = SongFixtures.newSong(next++, random);
+    List<Long> tagIds = List.of(1L + random.nextInt(SongFixtures.TAG_COUNT), 1L + random.nextInt(SongFixtures.TAG_COUNT));
+    return songService.saveWithTags(song, tagIds);
+  }
+}
@@ -0,0 +1,122 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// ベンチマーク用の曲データ（同じ seed なら毎回同じ内容）
+// カテゴリ・アーティスト・スコアの分布は実データに近い偏り（人気アーティストに曲が集中する）にしている
+public final class SongFixtures {
+
+  public static final int TAG_COUNT = 50;
+  private static final String[] CATEGORIES = {"アニメ", "J-POP", "ボカロ", "ロック", "洋楽", "演歌", "アイドル", "ゲーム"};
+  private static final String[] MACHINES = {"DAM", "JOYSOUND"};
+  private static final int ARTIST_COUNT = 2000;
+  private static final int INSERT_BATCH = 1000;
+  private static final int SEQUENCE_ALLOCATION = 50;
+
+  private SongFixtures() {
+  }
+
+  // メモリ上の曲（ID・タグ付き、DB には保存しない）
+  public static List<Song> songs(int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Tag> tags = tags();
+    List<Song> songs = new ArrayList<>(count);
+    LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+    for (int i = 1; i <= count; i++) {
+      Song song = new Song();
+      song.setId((long) i);
+      fill(song, i, random);
+      List<Tag> songTags = new ArrayList<>(3);
+      for (int t = random.nextInt(4); t > 0; t--) {
+        Tag tag = tags.get(random.nextInt(tags.size()));
+        if (!songTags.contains(tag)) {
+          songTags.add(tag);
+        }
+      }
+      song.setTags(songTags);
+      song.setCreatedAt(now.plusMinutes(i));
+      song.setUpdatedAt(now.plusMinutes(i));
+      songs.add(song);
+    }
+    return songs;
+  }
+
+  public static List<Tag> tags() {
+    List<Tag> tags = new ArrayList<>(TAG_COUNT);
+    for (int t = 1; t <= TAG_COUNT; t++) {
+      tags.add(new Tag((long) t, "タグ" + t, null));
+    }
+    return tags;
+  }
+
+  // 新規登録する曲（ID なし）
+  public static Song newSong(int index, SplittableRandom random) {
+    Song song = new Song();
+    fill(song, index, random);
+    return song;
+  }
+
+  private static void fill(Song song, int index, SplittableRandom random) {
+    song.setTitle("曲" + index);
+    song.setArtist(artist(random));
+    song.setKeyAdjustment(random.nextInt(-4, 5));
+    song.setScore(random.nextInt(10) == 0 ? null : 60 + random.nextInt(40));
+    song.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    song.setMachine(MACHINES[random.nextInt(MACHINES.length)]);
+    song.setIsFavorite(random.nextInt(5) == 0);
+    song.setMemo(random.nextInt(3) == 0 ? "サビ前のブレスに注意 " + index : null);
+  }
+
+  // 上位のアーティストほど出やすい（おおよそ Zipf 分布）
+  private static String artist(SplittableRandom random) {
+    int rank = (int) Math.floor(Math.pow(ARTIST_COUNT, random.nextDouble()));
+    return "アーティスト" + rank;
+  }
+
+  // 共有レパートリー（所有者なし）として JDBC で一括登録する（JPA を通さないので 100 万件でも短時間で済む）
+  // 登録後はシーケンスを進めて、アプリから登録する曲の ID と重ならないようにする
+  public static void insert(JdbcTemplate jdbc, int count, long seed) {
+    List<Object[]> tagRows = new ArrayList<>();
+    for (Tag tag : tags()) {
+      tagRows.add(new Object[] {tag.getId(), tag.getName()});
+    }
+    jdbc.batchUpdate("INSERT INTO tag (id, name) VALUES (?, ?)", tagRows);
+
+    SplittableRandom random = new SplittableRandom(seed);
+    Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0));
+    List<Object[]> songRows = new ArrayList<>(INSERT_BATCH);
+    List<Object[]> songTagRows = new ArrayList<>(INSERT_BATCH * 2);
+    for (int i = 1; i <= count; i++) {
+      Song song = newSong(i, random);
+      songRows.add(new Object[] {(long) i, song.getTitle(), song.getArtist(), song.getKeyAdjustment(), song.getScore(),
+          song.getCategory(), song.getMachine(), song.getIsFavorite(), song.getMemo(), now, now});
+      Set<Long> tagIds = new HashSet<>();
+      for (int t = random.nextInt(4); t > 0; t--) {
+        long tagId = 1 + random.nextInt(TAG_COUNT);
+        if (tagIds.add(tagId)) {
+          songTagRows.add(new Object[] {(long) i, tagId});
+        }
+      }
+      if (songRows.size() == INSERT_BATCH || i == count) {
+        jdbc.batchUpdate("INSERT INTO song (id, title, artist, key_adjustment, score, category, machine, is_favorite,"
+            + " memo, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", songRows);
+        jdbc.batchUpdate("INSERT INTO song_tag (song_id, tag_id) VALUES (?, ?)", songTagRows);
+        songRows.clear();
+        songTagRows.clear();
+      }
+    }
+    // pooled の採番は取得した値を払い出し範囲の上端として使うので、割り当て幅（50）の分だけ先から始める
+    jdbc.execute("ALTER SEQUENCE song_seq RESTART WITH " + (count + SEQUENCE_ALLOCATION + 1));
+    jdbc.execute("ALTER SEQUENCE tag_seq RESTART WITH " + (TAG_COUNT + SEQUENCE_ALLOCATION + 1));
+  }
+}
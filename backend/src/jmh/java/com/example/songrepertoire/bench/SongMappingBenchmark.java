@@ -0,0 +1,58 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.controller.dto.SongResponse;
+import com.example.songrepertoire.model.Song;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 一覧取得の応答作成（Song → SongResponse の変換と JSON への書き出し）
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SongMappingBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int songs;
+
+  private List<Song> fixtures;
+  private List<SongResponse> responses;
+  private ObjectMapper objectMapper;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    fixtures = SongFixtures.songs(songs, 42);
+    responses = toResponses();
+    // アプリと同じく日時は ISO 形式で書き出す
+    objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+        .disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  // SongController の一覧で行う変換
+  @Benchmark
+  public List<SongResponse> toResponse() {
+    return toResponses();
+  }
+
+  private List<SongResponse> toResponses() {
+    List<SongResponse> result = new ArrayList<>(fixtures.size());
+    for (Song song : fixtures) {
+      result.add(SongResponse.from(song));
+    }
+    return result;
+  }
+
+  // List<SongResponse> の JSON 書き出し（書き出し先は捨てる）
+  @Benchmark
+  public void serialize(Blackhole blackhole) throws Exception {
+    objectMapper.writeValue(new BlackholeOutputStream(blackhole), responses);
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.service.StatsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 統計（StatsController の各エンドポイント）。集計済みストアからの読み出しと、DB での再集計
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StatsBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int songs;
+
+  private ConfigurableApplicationContext context;
+  private StatsService statsService;
+
+  @Setup(Level.Trial)
+  public void setUp() throws InterruptedException {
+    context = BenchApplication.start(songs);
+    statsService = context.getBean(StatsService.class);
+    statsService.getSongCountByCategory(null); // 共有レパートリーの統計を集計しておく
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Map<String, Long> categoryCounts() {
+    return statsService.getSongCountByCategory(null);
+  }
+
+  @Benchmark
+  public Map<String, Long> topArtists() {
+    return statsService.getTopArtists(null, 10);
+  }
+
+  @Benchmark
+  public Double averageScore() {
+    return statsService.getAverageScore(null);
+  }
+
+  // 定期的な再集計（カテゴリ・アーティスト・スコアの GROUP BY を DB で実行）
+  @Benchmark
+  public void reconcile() {
+    statsService.reconcile();
+  }
+}
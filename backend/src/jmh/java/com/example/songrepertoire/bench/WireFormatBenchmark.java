@@ -0,0 +1,91 @@
+package com.example.songrepertoire.bench;
+
+import com.example.songrepertoire.controller.dto.CompactSongList;
+import com.example.songrepertoire.controller.dto.SongResponse;
+import com.example.songrepertoire.model.Song;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// 一覧取得の応答形式の比較（JSON の List<SongResponse> と、CBOR / Smile の CompactSongList）
+// 書き出し時間を計測し、応答のバイト数（gzip 前後）は開始時に標準出力へ出す
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WireFormatBenchmark {
+
+  @Param({"1000", "100000"})
+  public int songs;
+
+  private List<Song> fixtures;
+  private List<SongResponse> responses;
+  private ObjectMapper json;
+  private ObjectMapper cbor;
+  private ObjectMapper smile;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    fixtures = SongFixtures.songs(songs, 42);
+    responses = fixtures.stream().map(SongResponse::from).toList();
+    json = mapper(new JsonFactory());
+    cbor = mapper(new CBORFactory());
+    smile = mapper(new SmileFactory());
+
+    CompactSongList compact = CompactSongList.from(fixtures);
+    System.out.printf("%n[bytes] songs=%d json=%s cbor(list)=%s cbor(compact)=%s smile(compact)=%s%n", songs,
+        sizes(json, responses), sizes(cbor, responses), sizes(cbor, compact), sizes(smile, compact));
+  }
+
+  // アプリと同じく日時は ISO 形式で書き出す（CompactSongList の日時は long なので影響しない）
+  private static ObjectMapper mapper(JsonFactory factory) {
+    return new ObjectMapper(factory).registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  // そのままのバイト数 / gzip 後のバイト数
+  private static String sizes(ObjectMapper mapper, Object value) throws IOException {
+    byte[] raw = mapper.writeValueAsBytes(value);
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+      out.write(raw);
+    }
+    return raw.length + "/" + gzipped.size();
+  }
+
+  // 現在の JSON 応答（変換済みの List<SongResponse> を書き出す）
+  @Benchmark
+  public void json(Blackhole blackhole) throws IOException {
+    json.writeValue(new BlackholeOutputStream(blackhole), responses);
+  }
+
+  // 形式だけ CBOR にした場合（形は JSON と同じ）
+  @Benchmark
+  public void cborList(Blackhole blackhole) throws IOException {
+    cbor.writeValue(new BlackholeOutputStream(blackhole), responses);
+  }
+
+  // 小さい形式（Song からの変換込み）
+  @Benchmark
+  public void cborCompact(Blackhole blackhole) throws IOException {
+    cbor.writeValue(new BlackholeOutputStream(blackhole), CompactSongList.from(fixtures));
+  }
+
+  @Benchmark
+  public void smileCompact(Blackhole blackhole) throws IOException {
+    smile.writeValue(new BlackholeOutputStream(blackhole), CompactSongList.from(fixtures));
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.songrepertoire.config;
+
+import com.example.songrepertoire.service.PasswordHasher;
+import com.example.songrepertoire.service.RandomSongPicker;
+import com.example.songrepertoire.service.SongDuplicateIndex;
+import com.example.songrepertoire.service.SongEventBroadcaster;
+import com.example.songrepertoire.service.SongSearchIndex;
+import com.example.songrepertoire.service.TagCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+// メモリ上に持っているキャッシュ・索引の件数、SSE の接続数、BCrypt の計算待ちの件数をメトリクスとして公開する
+@Component
+public class AppMetrics implements MeterBinder {
+
+  private final TagCache tagCache;
+  private final SongSearchIndex searchIndex;
+  private final RandomSongPicker randomSongPicker;
+  private final SongEventBroadcaster eventBroadcaster;
+  private final SongDuplicateIndex duplicateIndex;
+  private final PasswordHasher passwordHasher;
+
+  public AppMetrics(TagCache tagCache, SongSearchIndex searchIndex, RandomSongPicker randomSongPicker,
+      SongEventBroadcaster eventBroadcaster, SongDuplicateIndex duplicateIndex, PasswordHasher passwordHasher) {
+    this.tagCache = tagCache;
+    this.searchIndex = searchIndex;
+    this.randomSongPicker = randomSongPicker;
+    this.eventBroadcaster = eventBroadcaster;
+    this.duplicateIndex = duplicateIndex;
+    this.passwordHasher = passwordHasher;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("app.tag.cache.size", tagCache, TagCache::size)
+        .description("タグキャッシュの件数").register(registry);
+    Gauge.builder("app.search.index.size", searchIndex, SongSearchIndex::size)
+        .description("検索索引に載っている曲数").register(registry);
+    Gauge.builder("app.random.pool.size", randomSongPicker, RandomSongPicker::size)
+        .description("ランダム選曲の候補数").register(registry);
+    Gauge.builder("app.events.clients", eventBroadcaster, SongEventBroadcaster::size)
+        .description("SSE の接続数").register(registry);
+    Gauge.builder("app.duplicate.index.size", duplicateIndex, SongDuplicateIndex::size)
+        .description("重複判定の索引に載っている曲数").register(registry);
+    Gauge.builder("app.auth.hash.queued", passwordHasher, PasswordHasher::queued)
+        .description("BCrypt の計算待ちの件数").register(registry);
+  }
+}
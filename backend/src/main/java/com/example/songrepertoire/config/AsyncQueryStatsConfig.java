@@ -0,0 +1,34 @@
+package com.example.songrepertoire.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+// 非同期で書き出す応答（StreamingResponseBody など）の SQL も、そのリクエストの件数・時間に数える
+// 書き出しは別のスレッドで動くので、実行の前後でリクエストの集計をそのスレッドに付け外しする
+@Configuration
+public class AsyncQueryStatsConfig implements WebMvcConfigurer {
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+      @Override
+      public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object stats = request.getAttribute(RequestQueryStats.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (stats instanceof RequestQueryStats current) {
+          RequestQueryStats.bind(current);
+        }
+      }
+
+      @Override
+      public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        RequestQueryStats.end();
+      }
+    });
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.songrepertoire.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+// Hibernate の2次キャッシュ（プロセス内の Caffeine）
+// リージョンはここで上限・期限付きで作成し、エンティティの @Cache の region と合わせる
+@Configuration
+public class EntityCacheConfig {
+
+  // エンティティ・コレクション・クエリ結果のリージョン
+  private static final List<String> REGIONS = List.of("song", "song.tags", "tag", "default-query-results-region");
+  // テーブルごとの最終更新時刻（クエリ結果の鮮度判定に使う）
+  private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+  @Bean(destroyMethod = "close")
+  public CacheManager entityCacheManager(@Value("${app.entity-cache.max-size:50000}") long maxSize,
+      @Value("${app.entity-cache.ttl:1h}") Duration ttl) {
+    CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+    for (String region : REGIONS) {
+      CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+      config.setMaximumSize(OptionalLong.of(maxSize));
+      config.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+      cacheManager.createCache(region, config);
+    }
+    // 最終更新時刻が先に消えると古いクエリ結果を返しうるので、上限・期限は付けない（テーブル数分しかない）
+    cacheManager.createCache(TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+  }
+}
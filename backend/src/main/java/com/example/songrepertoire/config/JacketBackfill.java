@@ -0,0 +1,66 @@
+package com.example.songrepertoire.config;
+
+import com.example.songrepertoire.service.JacketStorage;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+// 以前の形式（jacket 列に data URI をそのまま保存）の曲を、ジャケット画像のストレージに移してハッシュに置き換える
+// 起動時（リクエストの受け付け前）に data URI の行だけを処理するので、移し終えた後は何もしない
+@Component
+@DependsOn("entityManagerFactory")
+public class JacketBackfill {
+
+  private static final Logger log = LoggerFactory.getLogger(JacketBackfill.class);
+
+  // 1回に読む行数（data URI は1行が大きいので少なめ）
+  private static final int BATCH_SIZE = 20;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final JacketStorage jacketStorage;
+
+  public JacketBackfill(JdbcTemplate jdbcTemplate, JacketStorage jacketStorage) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.jacketStorage = jacketStorage;
+  }
+
+  @PostConstruct
+  public void migrate() {
+    long lastId = 0;
+    int migrated = 0;
+    int skipped = 0;
+    while (true) {
+      List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+          "SELECT id, jacket FROM song WHERE jacket LIKE 'data:%' AND id > ? ORDER BY id LIMIT " + BATCH_SIZE, lastId);
+      if (rows.isEmpty()) {
+        break;
+      }
+      for (Map<String, Object> row : rows) {
+        long id = ((Number) row.get("id")).longValue();
+        String jacket = (String) row.get("jacket");
+        lastId = id;
+        String hash;
+        try {
+          hash = jacketStorage.normalize(jacket);
+        } catch (ResponseStatusException e) {
+          // 読み込めない・大きすぎる画像はそのまま残す（曲の保存時と同じ基準）
+          log.warn("ジャケット画像を移せませんでした: song id={} {}", id, e.getReason());
+          skipped++;
+          continue;
+        }
+        // 読み込んだ後に書き換えられていたら上書きしない
+        migrated += jdbcTemplate.update("UPDATE song SET jacket = ? WHERE id = ? AND jacket = ?", hash, id, jacket);
+      }
+    }
+    if (migrated > 0 || skipped > 0) {
+      log.info("data URI のジャケット画像をストレージに移しました: {} 曲（移せなかったもの {} 曲）", migrated, skipped);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.songrepertoire.config;
+
+import org.hibernate.SessionEventListener;
+
+import java.io.Serial;
+
+// Hibernate のセッションごとに作られ、JDBC の実行（単発・バッチ）の回数と時間を RequestQueryStats に加算する
+// hibernate.session.events.auto で登録する
+public class QueryCountingSessionListener implements SessionEventListener {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private long statementStart;
+  private long batchStart;
+
+  @Override
+  public void jdbcExecuteStatementStart() {
+    statementStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteStatementEnd() {
+    RequestQueryStats.record(System.nanoTime() - statementStart);
+  }
+
+  @Override
+  public void jdbcExecuteBatchStart() {
+    batchStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteBatchEnd() {
+    RequestQueryStats.record(System.nanoTime() - batchStart);
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.songrepertoire.config;
+
+import com.example.songrepertoire.service.RateLimiter;
+import com.example.songrepertoire.service.RateLimits;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+// 認証（登録・ログイン）と書き込み（POST / PUT / PATCH / DELETE）を送信元 IP ごとに制限し、超えたら 429 と Retry-After を返す
+// 読み取りは制限しない。プロキシの後ろで動かすときは server.forward-headers-strategy で送信元 IP を引き継ぐ
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  private static final Set<String> AUTH_PATHS = Set.of("/api/auth/login", "/api/auth/register");
+  private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+  private final RateLimits rateLimits;
+
+  public RateLimitFilter(RateLimits rateLimits) {
+    this.rateLimits = rateLimits;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !WRITE_METHODS.contains(request.getMethod()) || !request.getRequestURI().startsWith("/api/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    RateLimiter limiter = AUTH_PATHS.contains(request.getRequestURI()) ? rateLimits.authByIp() : rateLimits.writeByIp();
+    long retryAfter = rateLimits.acquire(limiter, request.getRemoteAddr());
+    if (retryAfter > 0) {
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+      response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "リクエストが多すぎます");
+      return;
+    }
+    chain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.songrepertoire.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// リクエストごとの SQL 件数・時間をメトリクスに記録し、遅いリクエストは SQL 件数付きでログに出す
+// 非同期の応答は書き出しが終わった時点で記録する（書き出し中の SQL も数える）
+// （エンドポイントごとの応答時間は Spring Boot の http.server.requests で計測している）
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+  private final MeterRegistry meterRegistry;
+  private final long slowRequestMillis;
+
+  public RequestMetricsFilter(MeterRegistry meterRegistry,
+      @Value("${app.metrics.slow-request-ms:500}") long slowRequestMillis) {
+    this.meterRegistry = meterRegistry;
+    this.slowRequestMillis = slowRequestMillis;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    long start = System.nanoTime();
+    RequestQueryStats stats = RequestQueryStats.begin();
+    request.setAttribute(RequestQueryStats.ATTRIBUTE, stats);
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      RequestQueryStats.end();
+      if (request.isAsyncStarted()) {
+        // 非同期の応答（一覧のストリーミングなど）は、書き出しが終わってから記録する
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            record(request, response, stats, start);
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+          }
+        });
+      } else {
+        record(request, response, stats, start);
+      }
+    }
+  }
+
+  private void record(HttpServletRequest request, HttpServletResponse response, RequestQueryStats stats, long start) {
+    long elapsed = System.nanoTime() - start;
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+    String method = request.getMethod();
+
+    DistributionSummary.builder("app.request.sql.queries")
+        .description("1リクエストあたりの SQL 実行回数")
+        .tags("method", method, "uri", uri)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(200.0)
+        .register(meterRegistry)
+        .record(stats.count());
+    Timer.builder("app.request.sql.time")
+        .description("1リクエストあたりの SQL 実行時間の合計")
+        .tags("method", method, "uri", uri)
+        .register(meterRegistry)
+        .record(stats.nanos(), TimeUnit.NANOSECONDS);
+
+    // SSE は接続している間ずっと続くので遅いリクエストとしては扱わない
+    long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+    if (millis >= slowRequestMillis && !isEventStream(response)) {
+      log.warn("遅いリクエスト: {} {} status={} {} ms, SQL {} 回 / {} ms", method, request.getRequestURI(),
+          response.getStatus(), millis, stats.count(), TimeUnit.NANOSECONDS.toMillis(stats.nanos()));
+    }
+  }
+
+  private static boolean isEventStream(HttpServletResponse response) {
+    String contentType = response.getContentType();
+    return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.songrepertoire.config;
+
+// リクエスト処理中に発行した SQL の件数と合計時間（リクエストを処理するスレッドごと）
+// QueryCountingSessionListener が加算し、RequestMetricsFilter がリクエストの前後で読み出す
+// 非同期で書き出す応答は、書き出すスレッドにも AsyncQueryStatsConfig が同じ集計を渡す
+public final class RequestQueryStats {
+
+  // 非同期の処理に渡すためにリクエストの属性にも入れておく
+  static final String ATTRIBUTE = RequestQueryStats.class.getName();
+
+  private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+
+  private int count;
+  private long nanos;
+
+  private RequestQueryStats() {
+  }
+
+  // リクエストの開始時に集計を始める
+  static RequestQueryStats begin() {
+    RequestQueryStats stats = new RequestQueryStats();
+    CURRENT.set(stats);
+    return stats;
+  }
+
+  // 非同期の処理を実行するスレッドでリクエストの集計を続ける
+  static void bind(RequestQueryStats stats) {
+    CURRENT.set(stats);
+  }
+
+  static void end() {
+    CURRENT.remove();
+  }
+
+  // SQL 1回分を加算（リクエスト外のスレッドでは何もしない）
+  static void record(long elapsedNanos) {
+    RequestQueryStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.count++;
+      stats.nanos += elapsedNanos;
+    }
+  }
+
+  public int count() {
+    return count;
+  }
+
+  public long nanos() {
+    return nanos;
+  }
+}
@@ -0,0 +1,70 @@
+package com.example.songrepertoire.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Locale;
+import java.util.Map;
+
+// 採番用シーケンスを、既存の行の id より先へ進めておく（起動時、スキーマの更新後・リクエストの受け付け前）
+// 曲・タグは以前 IDENTITY（AUTO_INCREMENT）で採番していたので、シーケンスに切り替えた既存の MySQL では
+// ddl-auto=update が作るシーケンス代わりのテーブル（next_val）が 1 から始まり、既存の id と衝突する
+// 組み込みモード（H2）は本物のシーケンスを Flyway がテーブルと一緒に作るので、ここでは何もしない
+@Component
+@DependsOn("entityManagerFactory")
+public class SequenceInitializer {
+
+  private static final Logger log = LoggerFactory.getLogger(SequenceInitializer.class);
+
+  // シーケンス名と、それで採番するテーブル（エンティティの @SequenceGenerator と合わせる）
+  private static final Map<String, String> SEQUENCES = Map.of(
+      "song_seq", "song",
+      "tag_seq", "tag",
+      "song_change_seq", "song_change",
+      "score_entry_seq", "score_entry",
+      "score_rollup_seq", "score_rollup");
+  // @SequenceGenerator の allocationSize（1回の採番で確保する id の数）
+  private static final int ALLOCATION_SIZE = 50;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public SequenceInitializer(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  // next_val を max(id) + allocationSize より先へ進める（すでに先にあれば変えない。複数台が同時に起動しても安全）
+  @PostConstruct
+  public void advance() {
+    SEQUENCES.forEach((sequence, table) -> {
+      if (!isTable(sequence)) {
+        return;
+      }
+      Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+      if (maxId == null) {
+        return;
+      }
+      long next = maxId + ALLOCATION_SIZE + 1;
+      if (jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next) > 0) {
+        log.info("採番用のシーケンスを既存の id より先へ進めました: {} next_val={}", sequence, next);
+      }
+    });
+  }
+
+  // シーケンスがテーブルで代用されているか（本物のシーケンスなら false）
+  private boolean isTable(String name) {
+    return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+      DatabaseMetaData metaData = connection.getMetaData();
+      String stored = metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+      try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, stored, new String[] {"TABLE"})) {
+        return tables.next();
+      }
+    }));
+  }
+}
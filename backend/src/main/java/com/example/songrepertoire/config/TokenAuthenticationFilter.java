@@ -0,0 +1,59 @@
+package com.example.songrepertoire.config;
+
+import com.example.songrepertoire.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+// Authorization: Bearer <token> を検証して認証済みユーザー（principal はユーザー ID）を設定する
+// ヘッダーがなければ未ログインのまま通し、トークンが不正なら 401 を返す
+// SSE（EventSource はヘッダーを付けられない）だけは ?access_token=<token> でも受け付ける
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+  private static final String BEARER = "Bearer ";
+  private static final String EVENTS_PATH = "/api/events";
+
+  private final TokenService tokenService;
+
+  public TokenAuthenticationFilter(TokenService tokenService) {
+    this.tokenService = tokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String token = resolveToken(request);
+    if (token == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    var claims = tokenService.verify(token);
+    if (claims.isEmpty()) {
+      response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+      response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "トークンが無効です");
+      return;
+    }
+    SecurityContextHolder.getContext().setAuthentication(
+        UsernamePasswordAuthenticationToken.authenticated(claims.get().userId(), null, List.of()));
+    chain.doFilter(request, response);
+  }
+
+  private String resolveToken(HttpServletRequest request) {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+      return header.substring(BEARER.length()).trim();
+    }
+    if (EVENTS_PATH.equals(request.getRequestURI())) {
+      return request.getParameter("access_token");
+    }
+    return null;
+  }
+}
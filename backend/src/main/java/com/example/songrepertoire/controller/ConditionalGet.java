@@ -0,0 +1,41 @@
+package com.example.songrepertoire.controller;
+
+import com.example.songrepertoire.service.RepertoireVersions;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// 曲・統計の GET をレパートリーのバージョンで条件付きにする
+// If-None-Match / If-Modified-Since が現在のバージョンと一致すれば true（304 を返すので本文は作らない）
+@Component
+public class ConditionalGet {
+
+  // キャッシュしてよいが毎回確認させる（ユーザーごとに内容が違うので共有キャッシュには置かせない）
+  private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+  private final RepertoireVersions repertoireVersions;
+  private final CurrentUser currentUser;
+
+  public ConditionalGet(RepertoireVersions repertoireVersions, CurrentUser currentUser) {
+    this.repertoireVersions = repertoireVersions;
+    this.currentUser = currentUser;
+  }
+
+  public boolean notModified(ServletWebRequest request) {
+    return notModified(request, null);
+  }
+
+  // 同じ URL でも形式（JSON / 小さい形式）ごとに本文が違うので、形式名を ETag に含めて Accept で Vary する
+  public boolean notModified(ServletWebRequest request, String variant) {
+    RepertoireVersions.Stamp stamp = repertoireVersions.current(currentUser.id());
+    HttpServletResponse response = request.getResponse();
+    if (response != null) {
+      response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+      response.addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+      response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+    return request.checkNotModified(stamp.etag(variant), stamp.lastModified().toEpochMilli());
+  }
+}
@@ -0,0 +1,19 @@
+package com.example.songrepertoire.controller;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+// リクエストを送ったユーザーの ID を取り出す（TokenAuthenticationFilter が設定した認証情報から）
+// 未ログインなら null（所有者なしの共有レパートリーを操作する）
+@Component
+public class CurrentUser {
+
+  public Long id() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null && authentication.getPrincipal() instanceof Long userId) {
+      return userId;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,27 @@
+package com.example.songrepertoire.controller;
+
+import com.example.songrepertoire.service.SongEventBroadcaster;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "http://localhost:3000")
+public class EventController {
+
+  private final SongEventBroadcaster songEventBroadcaster;
+  private final CurrentUser currentUser;
+
+  public EventController(SongEventBroadcaster songEventBroadcaster, CurrentUser currentUser) {
+    this.songEventBroadcaster = songEventBroadcaster;
+    this.currentUser = currentUser;
+  }
+
+  // 曲の登録・更新・削除（song イベント）と統計（stats イベント）を SSE で配信
+  // EventSource はヘッダーを付けられないので、ログイン中は ?access_token=<トークン> で認証する
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter subscribe() {
+    return songEventBroadcaster.subscribe(currentUser.id());
+  }
+}
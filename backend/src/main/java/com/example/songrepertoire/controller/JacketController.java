@@ -0,0 +1,96 @@
+package com.example.songrepertoire.controller;
+
+import com.example.songrepertoire.service.JacketStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jackets")
+@CrossOrigin(origins = "http://localhost:3000")
+public class JacketController {
+
+  // Tomcat の sendfile（カーネルによるゼロコピー転送）を使うためのリクエスト属性
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  // 内容が変わらないので1年間キャッシュさせる
+  private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+  private final JacketStorage jacketStorage;
+
+  public JacketController(JacketStorage jacketStorage) {
+    this.jacketStorage = jacketStorage;
+  }
+
+  // アップロード（保存したハッシュと配信 URL を返す。曲の jacket にはハッシュか URL をそのまま指定できる）
+  @PostMapping
+  public Map<String, String> upload(@RequestParam("file") MultipartFile file) throws IOException {
+    String hash;
+    try (InputStream in = file.getInputStream()) {
+      hash = jacketStorage.store(in);
+    }
+    return Map.of(
+        "hash", hash,
+        "url", JacketStorage.urlFor(hash),
+        "thumbnailUrl", JacketStorage.thumbnailUrlFor(hash));
+  }
+
+  // 元画像
+  @GetMapping("/{hash}")
+  public ResponseEntity<Resource> getJacket(@PathVariable String hash, WebRequest webRequest, HttpServletRequest request)
+      throws IOException {
+    return serve(hash, jacketStorage.findOriginal(hash), webRequest, request);
+  }
+
+  // サムネイル
+  @GetMapping("/{hash}/thumbnail")
+  public ResponseEntity<Resource> getThumbnail(@PathVariable String hash, WebRequest webRequest,
+      HttpServletRequest request) throws IOException {
+    return serve(hash + "-thumbnail", jacketStorage.findThumbnail(hash), webRequest, request);
+  }
+
+  private ResponseEntity<Resource> serve(String etag, Path path, WebRequest webRequest, HttpServletRequest request)
+      throws IOException {
+    if (path == null) {
+      return ResponseEntity.notFound().build();
+    }
+    // If-None-Match が一致すれば 304 を返してファイルを開かない
+    if (webRequest.checkNotModified("\"" + etag + "\"")) {
+      return null;
+    }
+
+    long length = Files.size(path);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .eTag(etag)
+        .cacheControl(IMMUTABLE)
+        .contentType(MediaType.parseMediaType(jacketStorage.contentType(path)))
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+    // Range 指定がなく sendfile が使えるなら、本文は書かずに Tomcat へファイル転送を任せる
+    if (request.getHeader(HttpHeaders.RANGE) == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, path.toString());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, length);
+      return response.contentLength(length).build();
+    }
+    // それ以外は Resource として返す（Range 指定時は Spring が部分応答を返す）
+    return response.body(new FileSystemResource(path));
+  }
+}
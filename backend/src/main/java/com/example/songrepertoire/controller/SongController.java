@@ -1,13 +1,47 @@
 package com.example.songrepertoire.controller;
 
+import com.example.songrepertoire.model.ScoreEntry;
 import com.example.songrepertoire.model.Song;
 import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.repository.SongFilter;
+import com.example.songrepertoire.service.ImportResult;
+import com.example.songrepertoire.service.RandomSongPicker;
+import com.example.songrepertoire.service.ScoreHistory;
+import com.example.songrepertoire.service.SongChangeLog;
+import com.example.songrepertoire.service.SongDuplicateIndex;
+import com.example.songrepertoire.service.SongPage;
+import com.example.songrepertoire.service.SongPatchResult;
+import com.example.songrepertoire.service.SongSearchIndex;
 import com.example.songrepertoire.service.SongService;
+import com.example.songrepertoire.service.SongTransferService;
+import com.example.songrepertoire.controller.dto.CompactSongList;
+import com.example.songrepertoire.controller.dto.ScoreRequest;
+import com.example.songrepertoire.controller.dto.SongBatchResponse;
+import com.example.songrepertoire.controller.dto.SongChangesResponse;
+import com.example.songrepertoire.controller.dto.SongDuplicatesResponse;
+import com.example.songrepertoire.controller.dto.SongPageResponse;
+import com.example.songrepertoire.controller.dto.SongPatchRequest;
 import com.example.songrepertoire.controller.dto.SongRequest;
 import com.example.songrepertoire.controller.dto.SongResponse;
+import com.example.songrepertoire.controller.dto.SongSearchResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -15,89 +49,306 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "http://localhost:3000")
 public class SongController {
 
+  // 一覧を小さい形式（CompactSongList）で返すメディアタイプ
+  private static final String CBOR = "application/cbor";
+  private static final String SMILE = "application/x-jackson-smile";
+  // 登録した曲と重複していそうな既存の曲の ID（カンマ区切り）
+  private static final String POSSIBLE_DUPLICATES = "X-Possible-Duplicates";
+
   private final SongService songService;
+  private final SongTransferService songTransferService;
+  private final SongSearchIndex songSearchIndex;
+  private final RandomSongPicker randomSongPicker;
+  private final CurrentUser currentUser;
+  private final ConditionalGet conditionalGet;
+  private final SongChangeLog songChangeLog;
+  private final ScoreHistory scoreHistory;
+  private final SongDuplicateIndex songDuplicateIndex;
 
-  public SongController(SongService songService) {
+  public SongController(SongService songService, SongTransferService songTransferService,
+      SongSearchIndex songSearchIndex, RandomSongPicker randomSongPicker, CurrentUser currentUser,
+      ConditionalGet conditionalGet, SongChangeLog songChangeLog, ScoreHistory scoreHistory,
+      SongDuplicateIndex songDuplicateIndex) {
     this.songService = songService;
+    this.songTransferService = songTransferService;
+    this.songSearchIndex = songSearchIndex;
+    this.randomSongPicker = randomSongPicker;
+    this.currentUser = currentUser;
+    this.conditionalGet = conditionalGet;
+    this.songChangeLog = songChangeLog;
+    this.scoreHistory = scoreHistory;
+    this.songDuplicateIndex = songDuplicateIndex;
   }
 
-  // 一覧取得
+  // 一覧取得（一覧・詳細・検索はレパートリーに変更がなければ 304 を返す）
+  // 全曲をリストにせず、1ページずつ読み込んでそのまま応答に書き出す
   @GetMapping
-  public List<SongResponse> getAllSongs() {
-    return songService.findAll().stream().map(this::toResponse).collect(Collectors.toList());
+  public ResponseEntity<StreamingResponseBody> getAllSongs(ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    Long ownerId = currentUser.id();
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(out -> songTransferService.writeSongsJson(ownerId, out));
+  }
+
+  // 一覧取得（Accept が CBOR / Smile のときはタグを辞書にまとめた小さい形式）
+  @GetMapping(produces = {CBOR, SMILE})
+  public CompactSongList getAllSongsCompact(ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest, "compact")) {
+      return null;
+    }
+    return CompactSongList.from(songService.findAll(currentUser.id()));
+  }
+
+  // ページング取得（limit 指定時のみ。category, artist, machine, isFavorite, minScore, maxScore, tagId で絞り込み可）
+  @GetMapping(params = "limit")
+  public SongPageResponse getSongPage(
+      @ModelAttribute SongFilter filter,
+      @RequestParam int limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "id") String sort,
+      ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    SongPage page = songService.findPage(currentUser.id(), filter, sort, cursor, limit);
+    SongPageResponse response = new SongPageResponse();
+    response.setItems(page.songs().stream().map(SongResponse::from).collect(Collectors.toList()));
+    response.setNextCursor(page.nextCursor());
+    return response;
+  }
+
+  // ページング取得（Accept が CBOR / Smile のときはタグを辞書にまとめた小さい形式）
+  @GetMapping(params = "limit", produces = {CBOR, SMILE})
+  public CompactSongList getSongPageCompact(
+      @ModelAttribute SongFilter filter,
+      @RequestParam int limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "id") String sort,
+      ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest, "compact")) {
+      return null;
+    }
+    SongPage page = songService.findPage(currentUser.id(), filter, sort, cursor, limit);
+    CompactSongList response = CompactSongList.from(page.songs());
+    response.setNextCursor(page.nextCursor());
+    return response;
+  }
+
+  // 差分同期（since 以降に登録・更新された曲と削除された曲の ID）
+  // since を省略すると現在のバージョンだけを返すので、それを控えてから一覧を取得し、以降は since で差分を取る
+  @GetMapping("/changes")
+  public SongChangesResponse getChanges(
+      @RequestParam(required = false) Long since,
+      @RequestParam(defaultValue = "" + SongChangeLog.MAX_CHANGES) int limit) {
+    SongChangesResponse response = new SongChangesResponse();
+    if (since == null) {
+      response.setItems(List.of());
+      response.setDeletedIds(List.of());
+      response.setVersion(songChangeLog.currentVersion());
+      return response;
+    }
+    SongChangeLog.SongChanges changes = songChangeLog.changesSince(currentUser.id(), since, limit);
+    response.setItems(changes.songs().stream().map(SongResponse::from).collect(Collectors.toList()));
+    response.setDeletedIds(changes.deletedIds());
+    response.setVersion(changes.version());
+    response.setHasMore(changes.hasMore());
+    return response;
+  }
+
+  // 全文検索（曲名・アーティスト・メモ・タグの部分一致。かなはローマ字でも検索できる）
+  @GetMapping("/search")
+  public SongSearchResponse searchSongs(
+      @RequestParam String q,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size,
+      ServletWebRequest webRequest) {
+    if (!songSearchIndex.isReady()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "検索インデックスを構築中です");
+    }
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    int limit = Math.max(1, Math.min(size, SongService.MAX_PAGE_SIZE));
+    SongSearchIndex.SearchHits hits = songSearchIndex.search(currentUser.id(), q, Math.max(0, page) * limit, limit);
+    SongSearchResponse response = new SongSearchResponse();
+    response.setItems(songService.findAllByIdsInOrder(hits.ids()).stream().map(SongResponse::from).collect(Collectors.toList()));
+    response.setTotal(hits.total());
+    return response;
+  }
+
+  // 重複していそうな曲のグループ（曲名・アーティストの表記ゆれ・客演表記の有無を同じとみなす）
+  @GetMapping("/duplicates")
+  public SongDuplicatesResponse getDuplicates(
+      @RequestParam(defaultValue = "100") int limit,
+      ServletWebRequest webRequest) {
+    if (!songDuplicateIndex.isReady()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "重複判定の索引を構築中です");
+    }
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    List<List<Long>> groups = songDuplicateIndex.findGroups(currentUser.id());
+    List<List<Long>> page = groups.subList(0, Math.min(groups.size(), Math.max(1, Math.min(limit, SongService.MAX_PAGE_SIZE))));
+    Map<Long, SongResponse> songs = songService.findAllByIdsInOrder(page.stream().flatMap(List::stream).toList()).stream()
+        .map(SongResponse::from)
+        .collect(Collectors.toMap(SongResponse::getId, Function.identity()));
+    SongDuplicatesResponse response = new SongDuplicatesResponse();
+    response.setGroups(page.stream()
+        .map(ids -> ids.stream().map(songs::get).filter(song -> song != null).toList())
+        .filter(group -> group.size() > 1)
+        .toList());
+    response.setTotal(groups.size());
+    return response;
+  }
+
+  // ランダムに1曲選ぶ（weightBy=score でスコアが高い曲ほど選ばれやすくなる）
+  // ログイン中に noRepeat を指定すると、そのユーザーに直近 noRepeat 回で選んだ曲は選ばない
+  @GetMapping("/random")
+  public ResponseEntity<SongResponse> getRandomSong(
+      @RequestParam(required = false) Long tagId,
+      @RequestParam(required = false) String tag,
+      @RequestParam(required = false) String category,
+      @RequestParam(defaultValue = "false") boolean favoritesOnly,
+      @RequestParam(required = false) String weightBy,
+      @RequestParam(defaultValue = "0") int noRepeat) {
+    if (!randomSongPicker.isReady()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "選曲用の索引を構築中です");
+    }
+    Long ownerId = currentUser.id();
+    if (tagId == null && tag != null) {
+      Optional<Tag> found = songService.findTagByName(ownerId, tag);
+      if (found.isEmpty()) {
+        return ResponseEntity.notFound().build();
+      }
+      tagId = found.get().getId();
+    }
+    Optional<Song> song = randomSongPicker
+        .pick(ownerId, tagId, category, favoritesOnly, "score".equals(weightBy), noRepeat)
+        .flatMap(id -> songService.findById(ownerId, id));
+    return song.map(s -> ResponseEntity.ok(SongResponse.from(s))).orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  // 一括インポート（NDJSON: 1行1曲、SongRequest と同じ形式）
+  @PostMapping(value = "/import", consumes = "application/x-ndjson")
+  public ImportResult importNdjson(HttpServletRequest request,
+      @RequestParam(defaultValue = "allow") String onDuplicate) throws IOException {
+    return songTransferService.importNdjson(currentUser.id(), request.getInputStream(), duplicatePolicy(onDuplicate));
+  }
+
+  // 一括インポート（CSV: 1行目はヘッダー、tags 列は "|" 区切り）
+  @PostMapping(value = "/import", consumes = "text/csv")
+  public ImportResult importCsv(HttpServletRequest request,
+      @RequestParam(defaultValue = "allow") String onDuplicate) throws IOException {
+    return songTransferService.importCsv(currentUser.id(), request.getInputStream(), duplicatePolicy(onDuplicate));
+  }
+
+  // 一括エクスポート（format=ndjson|csv、一覧と同じ条件で絞り込み可）
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportSongs(
+      @ModelAttribute SongFilter filter,
+      @RequestParam(defaultValue = "ndjson") String format) {
+    Long ownerId = currentUser.id();
+    if ("csv".equals(format)) {
+      return ResponseEntity.ok()
+          .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+          .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"songs.csv\"")
+          .body(out -> songTransferService.exportCsv(ownerId, filter, out));
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"songs.ndjson\"")
+        .body(out -> songTransferService.exportNdjson(ownerId, filter, out));
   }
 
   // 詳細取得
   @GetMapping("/{id}")
-  public SongResponse getSongById(@PathVariable Long id) {
-    Song song = songService.findById(id).orElseThrow(() -> new RuntimeException("曲が見つかりません"));
-    return toResponse(song);
+  public SongResponse getSongById(@PathVariable Long id, ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    Song song = songService.findById(currentUser.id(), id).orElseThrow(() -> new RuntimeException("曲が見つかりません"));
+    return SongResponse.from(song);
   }
 
-  // 登録
+  // 登録（重複していそうな既存の曲があれば X-Possible-Duplicates で知らせる）
+  // onDuplicate=skip なら登録せずに最も似ている既存の曲を返し、reject なら 409 を返す
   @PostMapping
-  public SongResponse createSong(@RequestBody SongRequest request) {
-    Song song = new Song();
-    applyRequestToSong(request, song);
-    List<Long> tagIds = request.getTagIds();
-    Song saved;
-    if (tagIds == null || tagIds.isEmpty()) {
-      saved = songService.save(song);
-    } else {
-      saved = songService.saveWithTags(song, tagIds);
+  public ResponseEntity<SongResponse> createSong(@RequestBody SongRequest request,
+      @RequestParam(defaultValue = "allow") String onDuplicate) {
+    Long ownerId = currentUser.id();
+    SongDuplicateIndex.Policy policy = duplicatePolicy(onDuplicate);
+    List<Long> duplicates = songDuplicateIndex.findSimilar(ownerId, request.getTitle(), request.getArtist(), null).stream()
+        .map(SongDuplicateIndex.Match::id)
+        .toList();
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+    if (!duplicates.isEmpty()) {
+      String ids = duplicates.stream().map(String::valueOf).collect(Collectors.joining(","));
+      if (policy == SongDuplicateIndex.Policy.REJECT) {
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "重複していそうな曲があります: " + ids);
+      }
+      builder.header(POSSIBLE_DUPLICATES, ids);
+      if (policy == SongDuplicateIndex.Policy.SKIP) {
+        Optional<Song> existing = songService.findById(ownerId, duplicates.get(0));
+        if (existing.isPresent()) {
+          return builder.body(SongResponse.from(existing.get()));
+        }
+      }
     }
-    return toResponse(saved);
+    Song song = new Song();
+    songService.applyRequest(ownerId, request, song);
+    Song saved = songService.save(song);
+    return builder.body(SongResponse.from(saved));
   }
 
   // 更新
   @PutMapping("/{id}")
   public SongResponse updateSong(@PathVariable Long id, @RequestBody SongRequest request) {
-    Song song = songService.findById(id).orElseThrow(() -> new RuntimeException("曲が見つかりません"));
-    applyRequestToSong(request, song);
+    Long ownerId = currentUser.id();
+    Song song = songService.findById(ownerId, id).orElseThrow(() -> new RuntimeException("曲が見つかりません"));
+    songService.applyRequest(ownerId, request, song);
     Song saved = songService.save(song);
-    return toResponse(saved);
+    return SongResponse.from(saved);
+  }
+
+  // 一括更新（変更する項目だけを指定した曲のリスト。1トランザクションで反映し、1曲ごとの結果を返す）
+  @PatchMapping("/batch")
+  public SongBatchResponse patchSongs(@RequestBody List<SongPatchRequest> requests) {
+    List<SongPatchResult> results = songService.patchAll(currentUser.id(), requests);
+    SongBatchResponse response = new SongBatchResponse();
+    response.setItems(results.stream()
+        .map(r -> new SongBatchResponse.Item(r.id(), r.status(), r.error(), r.song() == null ? null : SongResponse.from(r.song())))
+        .collect(Collectors.toList()));
+    response.setUpdated((int) results.stream().filter(r -> r.status() == SongPatchResult.Status.UPDATED).count());
+    response.setFailed((int) results.stream().filter(r -> r.song() == null).count());
+    return response;
+  }
+
+  // スコアの記録（新しい順。曲のスコアが変わるたび・練習結果を記録するたびに追加される）
+  @GetMapping("/{id}/scores")
+  public List<ScoreEntry> getScores(@PathVariable Long id, @RequestParam(defaultValue = "100") int limit) {
+    return scoreHistory.entries(currentUser.id(), id, limit);
+  }
+
+  // 練習結果を記録（曲のスコア・機種・キーも記録の内容に更新する）
+  @PostMapping("/{id}/scores")
+  public ScoreEntry recordScore(@PathVariable Long id, @RequestBody ScoreRequest request) {
+    return scoreHistory.recordPractice(currentUser.id(), id, request.getScore(), request.getMachine(), request.getKey());
   }
 
   // 削除
   @DeleteMapping("/{id}")
   public void deleteSong(@PathVariable Long id) {
-    songService.deleteById(id);
-  }
-
-  // リクエストの内容を Song に反映
-  private void applyRequestToSong(SongRequest request, Song song) {
-    song.setTitle(request.getTitle());
-    song.setArtist(request.getArtist());
-    song.setKeyAdjustment(request.getKey());
-    song.setScore(request.getScore());
-    song.setCategory(request.getCategory());
-    song.setMachine(request.getMachine());
-    song.setIsFavorite(request.getIsFavorite());
-    song.setJacket(request.getJacket());
-    song.setMemo(request.getMemo());
-
-    if (request.getTagIds() != null) {
-      List<Tag> tags = songService.findTagsByIds(request.getTagIds());
-      song.setTags(tags);
-    }
+    songService.deleteById(currentUser.id(), id);
   }
 
-  // SongエンティティからSongResponse DTOへの変換
-  private SongResponse toResponse(Song song) {
-    SongResponse dto = new SongResponse();
-    dto.setId(song.getId());
-    dto.setTitle(song.getTitle());
-    dto.setArtist(song.getArtist());
-    dto.setKeyAdjustment(song.getKeyAdjustment());
-    dto.setScore(song.getScore());
-    dto.setCategory(song.getCategory());
-    dto.setMachine(song.getMachine());
-    dto.setIsFavorite(song.getIsFavorite());
-    dto.setJacket(song.getJacket());
-    dto.setMemo(song.getMemo());
-    dto.setTags(song.getTags());
-    dto.setCreatedAt(song.getCreatedAt());
-    dto.setUpdatedAt(song.getUpdatedAt());
-    return dto;
+  private static SongDuplicateIndex.Policy duplicatePolicy(String value) {
+    try {
+      return SongDuplicateIndex.Policy.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "onDuplicate は allow, skip, reject のいずれかです");
+    }
   }
 }
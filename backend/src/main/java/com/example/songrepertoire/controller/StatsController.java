@@ -1,8 +1,18 @@
 package com.example.songrepertoire.controller;
 
+import com.example.songrepertoire.controller.dto.ScoreProgressResponse;
+import com.example.songrepertoire.model.ScoreRollup;
+import com.example.songrepertoire.service.ScoreHistory;
 import com.example.songrepertoire.service.StatsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -11,23 +21,76 @@ import java.util.Map;
 public class StatsController {
 
   private final StatsService statsService;
+  private final CurrentUser currentUser;
+  private final ConditionalGet conditionalGet;
+  private final ScoreHistory scoreHistory;
 
-  public StatsController(StatsService statsService) {
+  public StatsController(StatsService statsService, CurrentUser currentUser, ConditionalGet conditionalGet,
+      ScoreHistory scoreHistory) {
     this.statsService = statsService;
+    this.currentUser = currentUser;
+    this.conditionalGet = conditionalGet;
+    this.scoreHistory = scoreHistory;
   }
 
+  // 統計はレパートリーに変更がなければ 304 を返す
   @GetMapping("/categories")
-  public Map<String, Long> getCategoryStats() {
-    return statsService.getSongCountByCategory();
+  public Map<String, Long> getCategoryStats(ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    return statsService.getSongCountByCategory(currentUser.id());
   }
 
+  // 曲数の多いアーティスト上位 limit 件（順位順）
   @GetMapping("/artists")
-  public Map<String, Long> getArtistStats() {
-    return statsService.getSongCountByArtistTop10();
+  public Map<String, Long> getArtistStats(@RequestParam(defaultValue = "10") int limit, ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    return statsService.getTopArtists(currentUser.id(), limit);
   }
 
   @GetMapping("/average-score")
-  public Double getAverageScore() {
-    return statsService.getAverageScore();
+  public Double getAverageScore(ServletWebRequest webRequest) {
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    return statsService.getAverageScore(currentUser.id());
+  }
+
+  // スコアの推移（songId か artist のどちらかを指定。granularity は day|week、期間の既定は直近1年）
+  @GetMapping("/progress")
+  public ScoreProgressResponse getProgress(
+      @RequestParam(required = false) Long songId,
+      @RequestParam(required = false) String artist,
+      @RequestParam(defaultValue = "week") String granularity,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      ServletWebRequest webRequest) {
+    if ((songId == null) == (artist == null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "songId か artist のどちらかを指定してください");
+    }
+    ScoreRollup.Granularity unit;
+    try {
+      unit = ScoreRollup.Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity は day か week です");
+    }
+    if (conditionalGet.notModified(webRequest)) {
+      return null;
+    }
+    LocalDate end = to != null ? to : LocalDate.now();
+    LocalDate start = from != null ? from : end.minusYears(1);
+    Long ownerId = currentUser.id();
+    List<ScoreRollup> rollups = songId != null
+        ? scoreHistory.songProgress(ownerId, songId, unit, start, end)
+        : scoreHistory.artistProgress(ownerId, artist, unit, start, end);
+    ScoreProgressResponse response = new ScoreProgressResponse();
+    response.setGranularity(unit);
+    response.setFrom(start);
+    response.setTo(end);
+    response.setPoints(rollups.stream().map(ScoreProgressResponse.Point::from).toList());
+    return response;
   }
 }
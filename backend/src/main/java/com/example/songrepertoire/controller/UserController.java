@@ -1,8 +1,15 @@
 package com.example.songrepertoire.controller;
 
+import com.example.songrepertoire.controller.dto.LoginRequest;
+import com.example.songrepertoire.controller.dto.LoginResponse;
+import com.example.songrepertoire.controller.dto.RegisterRequest;
 import com.example.songrepertoire.model.User;
+import com.example.songrepertoire.service.RateLimits;
+import com.example.songrepertoire.service.TokenService;
 import com.example.songrepertoire.service.UserService;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
 
@@ -12,29 +19,59 @@ import java.util.Optional;
 public class UserController {
 
   private final UserService userService;
+  private final TokenService tokenService;
+  private final CurrentUser currentUser;
+  private final RateLimits rateLimits;
 
-  public UserController(UserService userService) {
+  public UserController(UserService userService, TokenService tokenService, CurrentUser currentUser,
+      RateLimits rateLimits) {
     this.userService = userService;
+    this.tokenService = tokenService;
+    this.currentUser = currentUser;
+    this.rateLimits = rateLimits;
   }
 
+  // ユーザー登録（ログインと同じく、パスワードは URL やアクセスログに残らないよう JSON 本文で受け取る）
   @PostMapping("/register")
-  public User register(
-      @RequestParam String email,
-      @RequestParam String password,
-      @RequestParam String displayName) {
-    return userService.register(email, password, displayName);
+  public User register(@RequestBody RegisterRequest request) {
+    if (isBlank(request.getEmail()) || isBlank(request.getPassword()) || isBlank(request.getDisplayName())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "email, password, displayName を指定してください");
+    }
+    return userService.register(request.getEmail(), request.getPassword(), request.getDisplayName());
   }
 
+  // ログイン（パスワードは URL に残らないよう JSON 本文で受け取る）
+  // 以降のリクエストは返したトークンを Authorization: Bearer で送る
+  // 同じアカウントへの試行が多すぎる・BCrypt の待ちがあふれているときは 429 を返す
   @PostMapping("/login")
-  public User login(
-      @RequestParam String email,
-      @RequestParam String password) {
-    Optional<User> userOpt = userService.login(email, password);
-    return userOpt.orElseThrow(() -> new RuntimeException("認証失敗"));
+  public LoginResponse login(@RequestBody LoginRequest request) {
+    rateLimits.checkLogin(request.getEmail());
+    Optional<User> userOpt = userService.login(request.getEmail(), request.getPassword());
+    User user = userOpt.orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "認証失敗"));
+    TokenService.IssuedToken issued = tokenService.issue(user.getId());
+    LoginResponse response = new LoginResponse();
+    response.setToken(issued.token());
+    response.setExpiresAt(issued.expiresAt());
+    response.setUser(user);
+    return response;
   }
 
+  // ログイン中のユーザー情報
+  @GetMapping("/me")
+  public User getCurrentUser() {
+    return getUser(currentUser.id());
+  }
+
+  // 自分以外のユーザー情報は取得できない
   @GetMapping("/me/{id}")
   public User getUser(@PathVariable Long id) {
+    if (!id.equals(currentUser.id())) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "他のユーザーの情報は取得できません");
+    }
     return userService.findById(id).orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
   }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.isBlank();
+  }
 }
@@ -0,0 +1,67 @@
+package com.example.songrepertoire.controller.dto;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.service.JacketStorage;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// CBOR / Smile で返す曲一覧（モバイル・キオスク向けの小さい形式）
+// 曲はフィールド名なしの配列（並びは FIELDS）、タグは tags にまとめて曲からは ID で参照し、日時は UNIX 時間（ミリ秒）
+@Data
+public class CompactSongList {
+
+  public static final List<String> FIELDS = List.of("id", "title", "artist", "key", "score", "category", "machine",
+      "isFavorite", "tagIds", "createdAt", "updatedAt", "jacket", "jacketThumbnail", "memo");
+
+  private List<String> fields = FIELDS;
+  private List<Tag> tags;
+  private List<Item> items;
+  private String nextCursor; // ページング取得のときだけ
+
+  public static CompactSongList from(List<Song> songs) {
+    Map<Long, Tag> tags = new LinkedHashMap<>();
+    List<Item> items = new ArrayList<>(songs.size());
+    for (Song song : songs) {
+      long[] tagIds;
+      if (song.getTags() == null) {
+        tagIds = new long[0];
+      } else {
+        tagIds = new long[song.getTags().size()];
+        for (int i = 0; i < tagIds.length; i++) {
+          Tag tag = song.getTags().get(i);
+          tags.putIfAbsent(tag.getId(), tag);
+          tagIds[i] = tag.getId();
+        }
+      }
+      items.add(new Item(song.getId(), song.getTitle(), song.getArtist(), song.getKeyAdjustment(), song.getScore(),
+          song.getCategory(), song.getMachine(), song.getIsFavorite(), tagIds,
+          epochMillis(song.getCreatedAt()), epochMillis(song.getUpdatedAt()),
+          JacketStorage.urlFor(song.getJacket()), JacketStorage.thumbnailUrlFor(song.getJacket()), song.getMemo()));
+    }
+    CompactSongList list = new CompactSongList();
+    list.setTags(new ArrayList<>(tags.values()));
+    list.setItems(items);
+    return list;
+  }
+
+  private static Long epochMillis(LocalDateTime time) {
+    return time == null ? null : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+  @JsonPropertyOrder({"id", "title", "artist", "key", "score", "category", "machine",
+      "isFavorite", "tagIds", "createdAt", "updatedAt", "jacket", "jacketThumbnail", "memo"})
+  public record Item(Long id, String title, String artist, Integer key, Integer score, String category,
+      String machine, Boolean isFavorite, long[] tagIds, Long createdAt, Long updatedAt, String jacket,
+      String jacketThumbnail, String memo) {
+  }
+}
@@ -0,0 +1,9 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+
+@Data
+public class LoginRequest {
+  private String email;
+  private String password;
+}
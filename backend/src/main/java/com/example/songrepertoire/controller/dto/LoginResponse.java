@@ -0,0 +1,13 @@
+package com.example.songrepertoire.controller.dto;
+
+import com.example.songrepertoire.model.User;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class LoginResponse {
+  private String token; // Authorization: Bearer で送るトークン
+  private Instant expiresAt; // トークンの有効期限
+  private User user;
+}
@@ -0,0 +1,10 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+
+@Data
+public class RegisterRequest {
+  private String email;
+  private String password;
+  private String displayName;
+}
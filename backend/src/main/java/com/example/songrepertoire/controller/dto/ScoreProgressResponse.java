@@ -0,0 +1,23 @@
+package com.example.songrepertoire.controller.dto;
+
+import com.example.songrepertoire.model.ScoreRollup;
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class ScoreProgressResponse {
+  private ScoreRollup.Granularity granularity;
+  private LocalDate from;
+  private LocalDate to;
+  private List<Point> points; // 記録のある期間だけを期間順に
+
+  // 期間（初日）ごとのスコアの最小・最大・平均と記録の件数
+  public record Point(LocalDate periodStart, int min, int max, double average, long count) {
+
+    public static Point from(ScoreRollup rollup) {
+      return new Point(rollup.getPeriodStart(), rollup.getMinScore(), rollup.getMaxScore(),
+          rollup.getAverageScore(), rollup.getEntryCount());
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+
+// 練習結果の記録（machine・key は省略すると曲の現在の値）
+@Data
+public class ScoreRequest {
+  private Integer score;
+  private String machine;
+  private Integer key;
+}
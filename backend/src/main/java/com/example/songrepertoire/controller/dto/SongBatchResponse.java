@@ -0,0 +1,16 @@
+package com.example.songrepertoire.controller.dto;
+
+import com.example.songrepertoire.service.SongPatchResult;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class SongBatchResponse {
+  private int updated; // 変更があった曲の数
+  private int failed; // 見つからない・不正で更新しなかった曲の数
+  private List<Item> items; // リクエストと同じ順の1曲ごとの結果
+
+  // song は更新後の曲（失敗したときは null、error に理由）
+  public record Item(Long id, SongPatchResult.Status status, String error, SongResponse song) {
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class SongChangesResponse {
+  private List<SongResponse> items; // 登録・更新された曲
+  private List<Long> deletedIds; // 削除された曲の ID
+  private long version; // 次回の since に渡すバージョン
+  private boolean hasMore; // true なら続けて since=version で取得する
+}
@@ -0,0 +1,10 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class SongDuplicatesResponse {
+  private List<List<SongResponse>> groups; // 重複していそうな曲のグループ（グループ内は ID 順）
+  private int total; // グループの総数
+}
@@ -0,0 +1,10 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class SongPageResponse {
+  private List<SongResponse> items;
+  private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.example.songrepertoire.controller.dto;
+
+import lombok.Data;
+import java.util.List;
+
+// 一括更新の1曲分（id 以外は変更する項目だけを指定する。null の項目は変更しない）
+@Data
+public class SongPatchRequest {
+  private Long id;
+  private String title;
+  private String artist;
+  private Integer key;
+  private Integer score;
+  private String category;
+  private String machine;
+  private Boolean isFavorite;
+  private String jacket;
+  private String memo;
+  private List<Long> addTagIds;
+  private List<String> addTagNames; // 未登録の名前は自動で作成される
+  private List<Long> removeTagIds;
+  private List<String> removeTagNames;
+}
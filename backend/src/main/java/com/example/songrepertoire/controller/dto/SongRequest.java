@@ -15,4 +15,5 @@ public class SongRequest {
   private String jacket;
   private String memo;
   private List<Long> tagIds;
+  private List<String> tagNames; // 未登録の名前は自動で作成される
 }
@@ -1,6 +1,8 @@
 package com.example.songrepertoire.controller.dto;
 
+import com.example.songrepertoire.model.Song;
 import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.service.JacketStorage;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import java.util.List;
@@ -20,6 +22,27 @@ public class SongResponse {
   private List<Tag> tags;
   private LocalDateTime createdAt;
   private LocalDateTime updatedAt;
-  private String jacket;
+  private String jacket; // 配信 URL（外部 URL の場合はそのまま）
+  private String jacketThumbnail; // サムネイルの配信 URL（外部 URL の場合は null）
   private String memo;
-}
\ No newline at end of file
+
+  // SongエンティティからSongResponse DTOへの変換
+  public static SongResponse from(Song song) {
+    SongResponse dto = new SongResponse();
+    dto.setId(song.getId());
+    dto.setTitle(song.getTitle());
+    dto.setArtist(song.getArtist());
+    dto.setKeyAdjustment(song.getKeyAdjustment());
+    dto.setScore(song.getScore());
+    dto.setCategory(song.getCategory());
+    dto.setMachine(song.getMachine());
+    dto.setIsFavorite(song.getIsFavorite());
+    dto.setJacket(JacketStorage.urlFor(song.getJacket()));
+    dto.setJacketThumbnail(JacketStorage.thumbnailUrlFor(song.getJacket()));
+    dto.setMemo(song.getMemo());
+    dto.setTags(song.getTags());
+    dto.setCreatedAt(song.getCreatedAt());
+    dto.setUpdatedAt(song.getUpdatedAt());
+    return dto;
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.songrepertoire.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// スコアの記録（追記のみ。曲のスコアが変わったとき・練習結果を記録したときに1件追加する）
+@Entity
+@Table(indexes = {
+    // 曲ごとの記録を時刻順に読む
+    @Index(name = "idx_score_entry_song_recorded_at", columnList = "songId, recordedAt"),
+    // 所有ユーザーのアーティストごとの記録を時刻順に読む
+    @Index(name = "idx_score_entry_user_artist_recorded_at", columnList = "user_id, artist, recordedAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "score_entry_seq")
+  @SequenceGenerator(name = "score_entry_seq", sequenceName = "score_entry_seq", allocationSize = 50)
+  private Long id;
+
+  // 曲の所有ユーザー（null なら共有レパートリー）
+  @JsonIgnore
+  @Column(name = "user_id")
+  private Long ownerId;
+
+  @Column(nullable = false)
+  private Long songId;
+
+  // 記録した時点のアーティスト
+  @Column(nullable = false)
+  private String artist;
+
+  @Column(nullable = false)
+  private Integer score;
+
+  @Column
+  private String machine;
+
+  @JsonProperty("key")
+  @Column
+  private Integer keyAdjustment;
+
+  @Column(nullable = false)
+  private LocalDateTime recordedAt;
+}
@@ -0,0 +1,76 @@
+package com.example.songrepertoire.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// スコアの記録の日別・週別の集計（記録を追加するたびに差分で更新する）
+// subject は集計の対象（曲なら "song:曲ID"、アーティストなら "artist:所有ユーザーID:アーティスト名"。共有レパートリーのユーザーIDは 0）
+// 記録の追加時は更新する行を rollupKey（対象・単位・期間を1列にしたもの）の IN でまとめて引く
+@Entity
+@Table(indexes = @Index(name = "idx_score_rollup_subject_period", columnList = "subject, granularity, periodStart"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreRollup {
+
+  // 集計の単位（週は月曜始まり）
+  public enum Granularity {
+    DAY, WEEK
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "score_rollup_seq")
+  @SequenceGenerator(name = "score_rollup_seq", sequenceName = "score_rollup_seq", allocationSize = 50)
+  private Long id;
+
+  // 対象・単位・期間の初日をつないだキー（keyOf）
+  @Column(nullable = false, unique = true, length = 330)
+  private String rollupKey;
+
+  @Column(nullable = false, length = 300)
+  private String subject;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 8)
+  private Granularity granularity;
+
+  // 期間の初日
+  @Column(nullable = false)
+  private LocalDate periodStart;
+
+  @Column(nullable = false)
+  private int minScore;
+
+  @Column(nullable = false)
+  private int maxScore;
+
+  @Column(nullable = false)
+  private long scoreSum;
+
+  @Column(nullable = false)
+  private long entryCount;
+
+  public ScoreRollup(String subject, Granularity granularity, LocalDate periodStart) {
+    this(null, keyOf(subject, granularity, periodStart), subject, granularity, periodStart,
+        Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 0);
+  }
+
+  public static String keyOf(String subject, Granularity granularity, LocalDate periodStart) {
+    return subject + "|" + granularity + "|" + periodStart;
+  }
+
+  // 記録1件分を加える
+  public void add(int score) {
+    minScore = Math.min(minScore, score);
+    maxScore = Math.max(maxScore, score);
+    scoreSum += score;
+    entryCount++;
+  }
+
+  public double getAverageScore() {
+    return entryCount == 0 ? 0 : (double) scoreSum / entryCount;
+  }
+}
@@ -2,19 +2,44 @@ package com.example.songrepertoire.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+    // 一覧のキーセットページング・絞り込み・集計用の複合インデックス（すべて所有ユーザーが先頭）
+    // 範囲走査だけで返せるのは、条件なし（id 順・updatedAt 順）と、id 順で等値条件（カテゴリ・アーティスト・機種・お気に入り）が1つのとき
+    // スコアの範囲指定・updatedAt 順での絞り込み・複数条件は、どれか1つのインデックスで範囲を絞り、残りの条件と並べ替えは行ごとに行う
+    @Index(name = "idx_song_user_id", columnList = "user_id, id"),
+    @Index(name = "idx_song_user_updated_at_id", columnList = "user_id, updatedAt, id"),
+    @Index(name = "idx_song_user_category_id", columnList = "user_id, category, id"),
+    @Index(name = "idx_song_user_artist_id", columnList = "user_id, artist, id"),
+    @Index(name = "idx_song_user_machine_id", columnList = "user_id, machine, id"),
+    @Index(name = "idx_song_user_favorite_id", columnList = "user_id, isFavorite, id"),
+    @Index(name = "idx_song_user_score_id", columnList = "user_id, score, id")
+})
+// 2次キャッシュに載せる（詳細取得・更新時の読み込みで DB を引かない）
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "song")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Song {
 
+  // バッチ INSERT できるようにシーケンス（pooled）で採番する
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "song_seq")
+  @SequenceGenerator(name = "song_seq", sequenceName = "song_seq", allocationSize = 50)
   private Long id;
 
+  // 所有ユーザー（null なら所有者なしの共有レパートリー）
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id", updatable = false)
+  private User owner;
+
   @Column(nullable = false)
   private String title;
 
@@ -42,8 +67,11 @@ public class Song {
   @Column
   private String memo;
 
+  // 複数曲のタグをまとめて1クエリで読み込む（ページサイズ上限と同じ件数）
   @ManyToMany
-  @JoinTable(name = "song_tag", joinColumns = @JoinColumn(name = "song_id"), inverseJoinColumns = @JoinColumn(name = "tag_id"))
+  @BatchSize(size = 100)
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "song.tags")
+  @JoinTable(name = "song_tag", joinColumns = @JoinColumn(name = "song_id"), inverseJoinColumns = @JoinColumn(name = "tag_id"), indexes = @Index(name = "idx_song_tag_tag_song", columnList = "tag_id, song_id"))
   private List<Tag> tags;
 
   @Column
@@ -52,6 +80,16 @@ public class Song {
   @Column
   private java.time.LocalDateTime updatedAt;
 
+  // DB から読み込んだ時点（または最後に書き込んだ時点）の集計対象項目
+  @Transient
+  @Setter(AccessLevel.NONE)
+  private SongSnapshot loadedState;
+
+  // 所有ユーザーの ID（共有レパートリーなら null。プロキシを初期化しない）
+  public Long getOwnerId() {
+    return owner == null ? null : owner.getId();
+  }
+
   @PrePersist
   protected void onCreate() {
     createdAt = updatedAt = java.time.LocalDateTime.now();
@@ -61,4 +99,11 @@ public class Song {
   protected void onUpdate() {
     updatedAt = java.time.LocalDateTime.now();
   }
+
+  @PostLoad
+  @PostPersist
+  @PostUpdate
+  protected void onSync() {
+    loadedState = SongSnapshot.of(this);
+  }
 }
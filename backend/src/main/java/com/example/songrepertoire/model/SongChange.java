@@ -0,0 +1,40 @@
+package com.example.songrepertoire.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// 曲の変更履歴（差分同期用）。id がそのままバージョンになり、コミット順に単調増加する
+@Entity
+@Table(indexes = {
+    // 所有ユーザーの指定バージョン以降の変更を順に読む
+    @Index(name = "idx_song_change_user_id", columnList = "user_id, id"),
+    // 保持期間を過ぎた履歴の削除用
+    @Index(name = "idx_song_change_changed_at", columnList = "changedAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongChange {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "song_change_seq")
+  @SequenceGenerator(name = "song_change_seq", sequenceName = "song_change_seq", allocationSize = 50)
+  private Long id;
+
+  // 曲の所有ユーザー（null なら共有レパートリー）
+  @Column(name = "user_id")
+  private Long ownerId;
+
+  @Column(nullable = false)
+  private Long songId;
+
+  // true なら削除（トゥームストーン）
+  @Column(nullable = false)
+  private boolean deleted;
+
+  @Column(nullable = false)
+  private LocalDateTime changedAt;
+}
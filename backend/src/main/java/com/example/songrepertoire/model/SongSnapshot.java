@@ -0,0 +1,9 @@
+package com.example.songrepertoire.model;
+
+// 統計の差分更新に使う、ある時点での曲の集計対象項目
+public record SongSnapshot(Long ownerId, String category, String artist, Integer score) {
+
+  public static SongSnapshot of(Song song) {
+    return new SongSnapshot(song.getOwnerId(), song.getCategory(), song.getArtist(), song.getScore());
+  }
+}
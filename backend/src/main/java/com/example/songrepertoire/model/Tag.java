@@ -2,18 +2,40 @@ package com.example.songrepertoire.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.example.songrepertoire.service.TagCacheInvalidator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_tag_user_name", columnNames = {"user_id", "name"}))
+@EntityListeners(TagCacheInvalidator.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tag")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Tag {
 
+  // バッチ INSERT できるようにシーケンス（pooled）で採番する
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tag_seq")
+  @SequenceGenerator(name = "tag_seq", sequenceName = "tag_seq", allocationSize = 50)
   private Long id;
 
-  @Column(nullable = false, unique = true)
+  @Column(nullable = false)
   private String name;
+
+  // 所有ユーザー（null なら所有者なしの共有タグ）
+  @JsonIgnore
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id")
+  private User owner;
+
+  // 所有ユーザーの ID（共有タグなら null。プロキシを初期化しない）
+  @JsonIgnore
+  public Long getOwnerId() {
+    return owner == null ? null : owner.getId();
+  }
 }
@@ -1,5 +1,6 @@
 package com.example.songrepertoire.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -17,6 +18,7 @@ public class User {
   @Column(nullable = false, unique = true)
   private String email; // メールアドレス
 
+  @JsonIgnore
   @Column(nullable = false)
   private String passwordHash; // パスワードはハッシュ化して保存
 
@@ -0,0 +1,22 @@
+package com.example.songrepertoire.repository;
+
+import com.example.songrepertoire.model.ScoreEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ScoreEntryRepository extends JpaRepository<ScoreEntry, Long> {
+
+  // 曲の記録を新しい順に取得
+  List<ScoreEntry> findBySongIdOrderByRecordedAtDesc(Long songId, Limit limit);
+
+  // 削除した曲の記録を削除
+  @Modifying
+  @Query("DELETE FROM ScoreEntry e WHERE e.songId IN :songIds")
+  int deleteBySongIdIn(@Param("songIds") Collection<Long> songIds);
+}
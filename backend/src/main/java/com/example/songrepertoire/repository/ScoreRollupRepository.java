@@ -0,0 +1,28 @@
+package com.example.songrepertoire.repository;
+
+import com.example.songrepertoire.model.ScoreRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ScoreRollupRepository extends JpaRepository<ScoreRollup, Long> {
+
+  // 複数の集計をキーでまとめて取得（記録の追加時に更新する行を読む）
+  List<ScoreRollup> findByRollupKeyIn(Collection<String> rollupKeys);
+
+  // 対象の期間内の集計を期間順に取得
+  @Query("SELECT r FROM ScoreRollup r WHERE r.subject = :subject AND r.granularity = :granularity"
+      + " AND r.periodStart BETWEEN :from AND :to ORDER BY r.periodStart")
+  List<ScoreRollup> findRange(@Param("subject") String subject, @Param("granularity") ScoreRollup.Granularity granularity,
+      @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+  // 対象（削除した曲など）の集計をすべて削除
+  @Modifying
+  @Query("DELETE FROM ScoreRollup r WHERE r.subject IN :subjects")
+  int deleteBySubjectIn(@Param("subjects") Collection<String> subjects);
+}
@@ -0,0 +1,38 @@
+package com.example.songrepertoire.repository;
+
+import com.example.songrepertoire.model.SongChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SongChangeRepository extends JpaRepository<SongChange, Long> {
+
+  // 指定バージョンより後の変更をバージョン順に取得（ownerId が null なら共有レパートリー）
+  default List<SongChange> findChangesSince(Long ownerId, long since, Limit limit) {
+    return ownerId == null ? findSharedChangesSince(since, limit) : findOwnedChangesSince(ownerId, since, limit);
+  }
+
+  @Query("SELECT c FROM SongChange c WHERE c.ownerId = :ownerId AND c.id > :since ORDER BY c.id")
+  List<SongChange> findOwnedChangesSince(@Param("ownerId") Long ownerId, @Param("since") long since, Limit limit);
+
+  @Query("SELECT c FROM SongChange c WHERE c.ownerId IS NULL AND c.id > :since ORDER BY c.id")
+  List<SongChange> findSharedChangesSince(@Param("since") long since, Limit limit);
+
+  // 最新のバージョン（履歴がなければ null）
+  @Query("SELECT MAX(c.id) FROM SongChange c")
+  Long findLatestVersion();
+
+  // 保持している最も古いバージョン（履歴がなければ null）
+  @Query("SELECT MIN(c.id) FROM SongChange c")
+  Long findOldestVersion();
+
+  // 保持期間を過ぎた履歴を削除
+  @Modifying
+  @Query("DELETE FROM SongChange c WHERE c.changedAt < :before")
+  int deleteByChangedAtBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,15 @@
+package com.example.songrepertoire.repository;
+
+import lombok.Data;
+
+// 一覧取得時の絞り込み条件（未指定の項目は条件に含めない）
+@Data
+public class SongFilter {
+  private String category;
+  private String artist;
+  private String machine;
+  private Boolean isFavorite;
+  private Integer minScore;
+  private Integer maxScore;
+  private Long tagId;
+}
@@ -1,24 +1,82 @@
 package com.example.songrepertoire.repository;
 
 import com.example.songrepertoire.model.Song;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface SongRepository extends JpaRepository<Song, Long> {
+public interface SongRepository extends JpaRepository<Song, Long>, JpaSpecificationExecutor<Song> {
 
-  // カテゴリ別の曲数を取得
-  @Query("SELECT s.category, COUNT(s) FROM Song s GROUP BY s.category")
-  List<Object[]> countSongsByCategory();
+  // 一覧取得（タグを JOIN FETCH して N+1 を防ぐ）
+  @Override
+  @EntityGraph(attributePaths = "tags")
+  List<Song> findAll(Specification<Song> spec);
 
-  // アーティスト別の曲数を取得
-  @Query("SELECT s.artist, COUNT(s) FROM Song s GROUP BY s.artist ORDER BY COUNT(s) DESC")
-  List<Object[]> countSongsByArtist();
+  // 詳細取得（タグも同じクエリで取得）
+  @Override
+  @EntityGraph(attributePaths = "tags")
+  Optional<Song> findById(Long id);
 
-  // スコアの平均値を取得
-  @Query("SELECT AVG(s.score) FROM Song s WHERE s.score IS NOT NULL")
-  Double findAverageScore();
+  // 以下の集計はすべて所有者で絞り込む（ownerId が null なら所有者なしの共有レパートリー）
+  // (user_id, ...) 始まりのインデックスで、そのユーザーの曲だけを読む
+  // 統計ストアの再集計用（カテゴリ別・アーティスト別の曲数、スコアの合計）は DB の今の値と突き合わせるので、クエリキャッシュを使わない
+  // 上位アーティストの結果はクエリキャッシュに載せる（Song への書き込みがあれば Hibernate が破棄する）
+
+  // カテゴリ別の曲数を取得（再集計用）
+  default List<Object[]> countSongsByCategory(Long ownerId) {
+    return ownerId == null ? countSharedSongsByCategory() : countOwnedSongsByCategory(ownerId);
+  }
+
+  @Query("SELECT s.category, COUNT(s) FROM Song s WHERE s.owner.id = :ownerId GROUP BY s.category")
+  List<Object[]> countOwnedSongsByCategory(@Param("ownerId") Long ownerId);
+
+  @Query("SELECT s.category, COUNT(s) FROM Song s WHERE s.owner IS NULL GROUP BY s.category")
+  List<Object[]> countSharedSongsByCategory();
+
+  // アーティスト別の曲数を取得（再集計用）
+  default List<Object[]> countSongsByArtist(Long ownerId) {
+    return ownerId == null ? countSharedSongsByArtist() : countOwnedSongsByArtist(ownerId);
+  }
+
+  @Query("SELECT s.artist, COUNT(s) FROM Song s WHERE s.owner.id = :ownerId GROUP BY s.artist ORDER BY COUNT(s) DESC, s.artist ASC")
+  List<Object[]> countOwnedSongsByArtist(@Param("ownerId") Long ownerId);
+
+  @Query("SELECT s.artist, COUNT(s) FROM Song s WHERE s.owner IS NULL GROUP BY s.artist ORDER BY COUNT(s) DESC, s.artist ASC")
+  List<Object[]> countSharedSongsByArtist();
+
+  // 曲数の多いアーティストを上位から指定件数だけ取得（同数ならアーティスト名順）
+  default List<Object[]> findTopArtists(Long ownerId, Pageable pageable) {
+    return ownerId == null ? findSharedTopArtists(pageable) : findOwnedTopArtists(ownerId, pageable);
+  }
+
+  @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+  @Query("SELECT s.artist, COUNT(s) FROM Song s WHERE s.owner.id = :ownerId GROUP BY s.artist ORDER BY COUNT(s) DESC, s.artist ASC")
+  List<Object[]> findOwnedTopArtists(@Param("ownerId") Long ownerId, Pageable pageable);
+
+  @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+  @Query("SELECT s.artist, COUNT(s) FROM Song s WHERE s.owner IS NULL GROUP BY s.artist ORDER BY COUNT(s) DESC, s.artist ASC")
+  List<Object[]> findSharedTopArtists(Pageable pageable);
+
+  // スコアの合計と件数を取得（統計ストアの再集計用）
+  default Object[] sumAndCountScores(Long ownerId) {
+    return (ownerId == null ? sumAndCountSharedScores() : sumAndCountOwnedScores(ownerId)).get(0);
+  }
+
+  @Query("SELECT COALESCE(SUM(s.score), 0), COUNT(s.score) FROM Song s WHERE s.owner.id = :ownerId")
+  List<Object[]> sumAndCountOwnedScores(@Param("ownerId") Long ownerId);
+
+  @Query("SELECT COALESCE(SUM(s.score), 0), COUNT(s.score) FROM Song s WHERE s.owner IS NULL")
+  List<Object[]> sumAndCountSharedScores();
 
   // // お気に入りの曲を取得
   // @Query("SELECT COUNT(s) FROM Song s WHERE s.isFavorite = 1")
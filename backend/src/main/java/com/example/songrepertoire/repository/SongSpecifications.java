@@ -0,0 +1,73 @@
+package com.example.songrepertoire.repository;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Subquery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Song の検索条件を組み立てる Specification 群
+public final class SongSpecifications {
+
+  private SongSpecifications() {
+  }
+
+  // 絞り込み条件（指定された項目だけを AND で結合）
+  public static Specification<Song> matches(SongFilter filter) {
+    return (root, query, cb) -> {
+      List<Predicate> predicates = new ArrayList<>();
+      if (filter.getCategory() != null) {
+        predicates.add(cb.equal(root.get("category"), filter.getCategory()));
+      }
+      if (filter.getArtist() != null) {
+        predicates.add(cb.equal(root.get("artist"), filter.getArtist()));
+      }
+      if (filter.getMachine() != null) {
+        predicates.add(cb.equal(root.get("machine"), filter.getMachine()));
+      }
+      if (filter.getIsFavorite() != null) {
+        predicates.add(cb.equal(root.get("isFavorite"), filter.getIsFavorite()));
+      }
+      if (filter.getMinScore() != null) {
+        predicates.add(cb.greaterThanOrEqualTo(root.get("score"), filter.getMinScore()));
+      }
+      if (filter.getMaxScore() != null) {
+        predicates.add(cb.lessThanOrEqualTo(root.get("score"), filter.getMaxScore()));
+      }
+      if (filter.getTagId() != null) {
+        // JOIN だと行が重複するため song_tag への EXISTS で判定する
+        Subquery<Long> sub = query.subquery(Long.class);
+        Root<Song> tagged = sub.correlate(root);
+        Join<Song, Tag> tag = tagged.join("tags");
+        sub.select(tag.get("id")).where(cb.equal(tag.get("id"), filter.getTagId()));
+        predicates.add(cb.exists(sub));
+      }
+      return cb.and(predicates.toArray(new Predicate[0]));
+    };
+  }
+
+  // 所有ユーザーの曲だけに絞り込む（ownerId が null なら所有者なしの共有レパートリー）
+  public static Specification<Song> ownedBy(Long ownerId) {
+    return (root, query, cb) -> ownerId == null
+        ? cb.isNull(root.get("owner"))
+        : cb.equal(root.get("owner").get("id"), ownerId);
+  }
+
+  // id 昇順のキーセット条件（id > lastId）
+  public static Specification<Song> idAfter(Long lastId) {
+    return (root, query, cb) -> cb.greaterThan(root.get("id"), lastId);
+  }
+
+  // 更新日時降順のキーセット条件（(updatedAt, id) < (lastUpdatedAt, lastId)）
+  public static Specification<Song> updatedBefore(LocalDateTime lastUpdatedAt, Long lastId) {
+    return (root, query, cb) -> cb.or(
+        cb.lessThan(root.get("updatedAt"), lastUpdatedAt),
+        cb.and(cb.equal(root.get("updatedAt"), lastUpdatedAt), cb.lessThan(root.get("id"), lastId)));
+  }
+}
@@ -3,5 +3,16 @@ package com.example.songrepertoire.repository;
 import com.example.songrepertoire.model.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface TagRepository extends JpaRepository<Tag, Long> {
+  // タグ名からまとめて取得（ownerId が null なら所有者なしの共有タグ）
+  default List<Tag> findByNameIn(Long ownerId, Collection<String> names) {
+    return ownerId == null ? findByOwnerIsNullAndNameIn(names) : findByOwner_IdAndNameIn(ownerId, names);
+  }
+
+  List<Tag> findByOwner_IdAndNameIn(Long ownerId, Collection<String> names);
+
+  List<Tag> findByOwnerIsNullAndNameIn(Collection<String> names);
 }
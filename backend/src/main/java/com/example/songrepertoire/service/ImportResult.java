@@ -0,0 +1,48 @@
+package com.example.songrepertoire.service;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 一括インポートの結果（エラー・重複は先頭から MAX_REPORTED_ERRORS 件まで保持）
+@Data
+public class ImportResult {
+
+  public static final int MAX_REPORTED_ERRORS = 1000;
+
+  private int imported;
+  private int failed;
+  private int skipped;
+  private List<RowError> errors = new ArrayList<>();
+  private List<RowDuplicate> duplicates = new ArrayList<>();
+
+  public void addImported(int count) {
+    imported += count;
+  }
+
+  public void addError(long line, String message) {
+    failed++;
+    if (errors.size() < MAX_REPORTED_ERRORS) {
+      errors.add(new RowError(line, message));
+    }
+  }
+
+  public void addDuplicate(long line, List<Long> songIds, Long duplicateOfLine) {
+    if (duplicates.size() < MAX_REPORTED_ERRORS) {
+      duplicates.add(new RowDuplicate(line, songIds, duplicateOfLine));
+    }
+  }
+
+  public void addSkipped() {
+    skipped++;
+  }
+
+  // 失敗した行の番号（NDJSON は行番号、CSV はヘッダーを1としたレコード番号）と理由
+  public record RowError(long line, String message) {
+  }
+
+  // 重複していそうな行（既存の曲の ID、同じファイル内の前の行ならその番号）
+  public record RowDuplicate(long line, List<Long> songIds, Long duplicateOfLine) {
+  }
+}
@@ -0,0 +1,281 @@
+package com.example.songrepertoire.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// ジャケット画像のコンテンツアドレス型ストレージ（SHA-256 をファイル名にしてローカルディスクに保存）
+// 同じ画像は1ファイルにまとまり、内容が変わらないのでブラウザやプロキシで無期限にキャッシュできる
+@Service
+public class JacketStorage {
+
+  // 曲に保存された jacket 値をこの URL で配信する
+  public static final String URL_PREFIX = "/api/jackets/";
+
+  private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+  // このサーバーの配信 URL（相対パス）だけ。ほかのホストの URL は外部 URL としてそのまま保存する
+  private static final Pattern JACKET_URL = Pattern.compile(Pattern.quote(URL_PREFIX) + "([0-9a-f]{64})(/thumbnail)?");
+  private static final Pattern DATA_URI = Pattern.compile("data:image/[\\w.+-]+;base64,(.*)", Pattern.DOTALL);
+
+  private final Path root;
+  private final int thumbnailSize;
+  // 受け付ける画像のファイルサイズと縦横の画素数の上限（デコード前に確かめる）
+  private final long maxBytes;
+  private final int maxDimension;
+
+  public JacketStorage(
+      @Value("${app.jacket.dir:./data/jackets}") String dir,
+      @Value("${app.jacket.thumbnail-size:200}") int thumbnailSize,
+      @Value("${app.jacket.max-size:10MB}") DataSize maxSize,
+      @Value("${app.jacket.max-dimension:4096}") int maxDimension) throws IOException {
+    this.root = Paths.get(dir).toAbsolutePath().normalize();
+    this.thumbnailSize = thumbnailSize;
+    this.maxBytes = maxSize.toBytes();
+    this.maxDimension = maxDimension;
+    Files.createDirectories(root);
+  }
+
+  // 画像を保存してハッシュを返す（同じ内容がすでにあれば書き込まない）
+  public String store(InputStream in) throws IOException {
+    Path tmp = Files.createTempFile(root, "upload-", ".tmp");
+    try {
+      MessageDigest digest = sha256();
+      try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+        copyLimited(in, out);
+      }
+      String hash = HexFormat.of().formatHex(digest.digest());
+      Path original = originalPath(hash);
+      if (!Files.exists(original)) {
+        BufferedImage image = readImage(tmp);
+        Files.createDirectories(original.getParent());
+        writeThumbnail(image, thumbnailPath(hash));
+        Files.move(tmp, original, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return hash;
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  // 曲の jacket に保存する値へ変換
+  // data URI は保存してハッシュに、配信 URL・ハッシュは保存済みか確かめてハッシュに、それ以外（外部 URL など）はそのまま
+  // 保存されていないハッシュは 400（別のサーバーから持ってきた値を、画像のない参照として保存しない）
+  public String normalize(String jacket) {
+    if (jacket == null || jacket.isBlank()) {
+      return null;
+    }
+    Matcher url = JACKET_URL.matcher(jacket);
+    String hash = url.matches() ? url.group(1) : isHash(jacket) ? jacket : null;
+    if (hash != null) {
+      if (findOriginal(hash) == null) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "jacket の画像が見つかりません（画像は data URI で送るか、先にアップロードしてください）: " + hash);
+      }
+      return hash;
+    }
+    Matcher data = DATA_URI.matcher(jacket);
+    if (data.matches()) {
+      // Base64 は4文字で3バイト。デコードする前に上限を超えないか確かめる
+      if (data.group(1).length() / 4 * 3 > maxBytes) {
+        throw tooLarge();
+      }
+      try {
+        byte[] bytes = Base64.getMimeDecoder().decode(data.group(1));
+        return store(new ByteArrayInputStream(bytes));
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "jacket の data URI が不正です");
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return jacket;
+  }
+
+  // エクスポート用の値（保存値がハッシュなら元画像の data URI、そうでなければそのまま）
+  // 別のサーバーにインポートしても画像ごと移るようにする。画像が見つからなければ null
+  public String toDataUri(String jacket) {
+    if (!isHash(jacket)) {
+      return jacket;
+    }
+    Path original = findOriginal(jacket);
+    if (original == null) {
+      return null;
+    }
+    try {
+      return "data:" + imageType(original) + ";base64," + Base64.getEncoder().encodeToString(Files.readAllBytes(original));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // 保存値がハッシュなら配信 URL に、そうでなければそのまま返す
+  public static String urlFor(String jacket) {
+    return isHash(jacket) ? URL_PREFIX + jacket : jacket;
+  }
+
+  // 保存値がハッシュならサムネイルの配信 URL を返す
+  public static String thumbnailUrlFor(String jacket) {
+    return isHash(jacket) ? URL_PREFIX + jacket + "/thumbnail" : null;
+  }
+
+  public static boolean isHash(String value) {
+    return value != null && HASH.matcher(value).matches();
+  }
+
+  // 元画像のパス（存在しなければ null）
+  public Path findOriginal(String hash) {
+    return existing(isHash(hash) ? originalPath(hash) : null);
+  }
+
+  // サムネイルのパス（存在しなければ null）
+  public Path findThumbnail(String hash) {
+    return existing(isHash(hash) ? thumbnailPath(hash) : null);
+  }
+
+  // 先頭のマジックナンバーから画像の Content-Type を判定
+  public String contentType(Path path) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      String type = URLConnection.guessContentTypeFromStream(in);
+      return type != null ? type : "application/octet-stream";
+    }
+  }
+
+  // data URI に付ける画像の Content-Type（マジックナンバーで分からなければ ImageIO の読み込み側から）
+  private String imageType(Path path) throws IOException {
+    String type = contentType(path);
+    if (type.startsWith("image/")) {
+      return type;
+    }
+    try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+      Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+      if (readers != null && readers.hasNext()) {
+        String[] types = readers.next().getOriginatingProvider().getMIMETypes();
+        if (types != null && types.length > 0) {
+          return types[0];
+        }
+      }
+    }
+    return "image/png";
+  }
+
+  // 上限を超えたら途中でやめる
+  private void copyLimited(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[8192];
+    long total = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      total += read;
+      if (total > maxBytes) {
+        throw tooLarge();
+      }
+      out.write(buffer, 0, read);
+    }
+  }
+
+  // ヘッダーの縦横を先に読み、上限以内のときだけ画素をデコードする（小さなファイルで巨大な画像を展開させない）
+  private BufferedImage readImage(Path path) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+      Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+      if (readers == null || !readers.hasNext()) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "画像として読み込めません");
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if (width > maxDimension || height > maxDimension) {
+          throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+              "画像が大きすぎます（縦横 " + maxDimension + " 画素まで）: " + width + "x" + height);
+        }
+        return reader.read(0);
+      } catch (ResponseStatusException e) {
+        throw e;
+      } catch (IOException | RuntimeException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "画像として読み込めません");
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private ResponseStatusException tooLarge() {
+    return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+        "画像が大きすぎます（" + DataSize.ofBytes(maxBytes).toMegabytes() + "MB まで）");
+  }
+
+  private Path existing(Path path) {
+    return path != null && Files.isRegularFile(path) ? path : null;
+  }
+
+  // 先頭2文字でディレクトリを分けて1ディレクトリあたりのファイル数を抑える
+  private Path originalPath(String hash) {
+    return root.resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  private Path thumbnailPath(String hash) {
+    return root.resolve(hash.substring(0, 2)).resolve(hash + ".thumb.jpg");
+  }
+
+  // 長辺が thumbnailSize になるよう縮小して JPEG で保存（透過部分は白で塗る）
+  private void writeThumbnail(BufferedImage image, Path target) throws IOException {
+    double scale = Math.min(1.0, (double) thumbnailSize / Math.max(image.getWidth(), image.getHeight()));
+    int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+    int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+    BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = thumbnail.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, width, height);
+      g.drawImage(image, 0, 0, width, height, null);
+    } finally {
+      g.dispose();
+    }
+    Path tmp = Files.createTempFile(root, "thumb-", ".tmp");
+    try {
+      ImageIO.write(thumbnail, "jpg", tmp.toFile());
+      Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
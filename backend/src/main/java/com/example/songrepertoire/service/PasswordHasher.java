@@ -0,0 +1,87 @@
+package com.example.songrepertoire.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// BCrypt のハッシュ計算・照合を、スレッド数と待ち行列の長さに上限のあるプールで行う
+// ログインが集中しても BCrypt が使う CPU はプールのスレッド数までに抑えられ、待ち行列があふれたら待たせずに 429 を返す
+// encode / matches は execute に渡した処理の中で呼ぶ（リクエストのスレッドで直接呼ばない）
+@Service
+public class PasswordHasher {
+
+  private final BCryptPasswordEncoder passwordEncoder;
+  private final ThreadPoolExecutor executor;
+  private final Counter rejected;
+
+  // strength はハッシュ計算のコスト（1 増やすと2倍の時間がかかる）。threads が 0 ならコア数の半分（最低1）
+  public PasswordHasher(MeterRegistry meterRegistry,
+      @Value("${app.auth.bcrypt-strength:10}") int bcryptStrength,
+      @Value("${app.auth.hash-threads:0}") int threads,
+      @Value("${app.auth.hash-queue:32}") int queueSize) {
+    this.passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+    int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize), Thread.ofPlatform().name("password-hasher-", 0).daemon().factory(),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.rejected = Counter.builder("app.auth.hash.rejected")
+        .description("BCrypt の待ち行列があふれて断った回数")
+        .register(meterRegistry);
+  }
+
+  // プールで task を実行して結果を待つ（待ち行列がいっぱいなら TooManyRequestsException）
+  public <T> T execute(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new TooManyRequestsException("混み合っています。しばらくしてから再試行してください", 1);
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  public String encode(String rawPassword) {
+    return passwordEncoder.encode(rawPassword);
+  }
+
+  public boolean matches(String rawPassword, String hash) {
+    return passwordEncoder.matches(rawPassword, hash);
+  }
+
+  // 保存済みのハッシュが設定より弱い strength で作られているか（ハッシュの先頭を見るだけなので呼び出し元で行う）
+  public boolean upgradeEncoding(String hash) {
+    return passwordEncoder.upgradeEncoding(hash);
+  }
+
+  public int queued() {
+    return executor.getQueue().size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,409 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// ランダム選曲用のメモリ上の ID 索引（所有者ごとに全曲・タグ別・カテゴリ別・お気に入り）
+// 一様選択は O(1)、スコア重み付きは Fenwick 木で O(log n)。曲一覧をクライアントに送らずに選べる
+@Component
+public class RandomSongPicker {
+
+  private static final Logger log = LoggerFactory.getLogger(RandomSongPicker.class);
+
+  // 条件に合う曲を引くまでの試行回数（超えたら候補を列挙して選び直す）
+  private static final int MAX_ATTEMPTS = 32;
+  // 直近の選曲履歴を保持するユーザー数と1ユーザーあたりの件数の上限
+  private static final int MAX_HISTORY_USERS = 10000;
+  public static final int MAX_NO_REPEAT = 100;
+  // 所有者なし（共有レパートリー）の曲のキー
+  private static final long SHARED = 0L;
+
+  private final SongService songService;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<Long, Entry> entries = new HashMap<>();
+  private final Map<Long, Pool> pools = new HashMap<>();
+
+  // ログインユーザーごとの直近の選曲（古いユーザーから破棄）
+  private final Map<Long, Deque<Long>> history = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Deque<Long>> eldest) {
+      return size() > MAX_HISTORY_USERS;
+    }
+  };
+
+  // 構築中に変更イベントで反映した曲の ID（構築が終わったら null）
+  // 構築で先に読んだ古い内容で、更新を戻したり削除した曲を復活させたりしない
+  private volatile Set<Long> changedDuringRebuild = new HashSet<>();
+  private volatile boolean ready;
+
+  public RandomSongPicker(SongService songService) {
+    this.songService = songService;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  // 起動時に DB の全曲から構築する
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Thread.ofVirtual().name("random-picker-rebuild").start(() -> {
+      long start = System.currentTimeMillis();
+      songService.forEachSong(songs -> songs.forEach(this::restore));
+      lock.writeLock().lock();
+      try {
+        changedDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      ready = true;
+      log.info("ランダム選曲の索引を構築しました: {} 曲, {} ms", size(), System.currentTimeMillis() - start);
+    });
+  }
+
+  // 曲の変更をコミット後に反映
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSongChanged(SongChangedEvent event) {
+    markChanged(event.songId());
+    if (event.song() == null) {
+      remove(event.songId());
+    } else {
+      put(event.song());
+    }
+  }
+
+  private void markChanged(Long songId) {
+    if (changedDuringRebuild == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (changedDuringRebuild != null) {
+        changedDuringRebuild.add(songId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 構築で読んだ曲を登録（構築中に変更イベントが届いた曲は、イベントの内容のままにする）
+  private void restore(Song song) {
+    lock.writeLock().lock();
+    try {
+      if (!changedDuringRebuild.contains(song.getId())) {
+        put(song);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 曲を登録（すでにあれば置き換える）
+  public void put(Song song) {
+    long[] tagIds = tagIds(song);
+
+    lock.writeLock().lock();
+    try {
+      if (tagIds == null) {
+        // タグを読み込んでいない曲は、登録済みのタグをそのまま使う（タグ別の索引から外さない）
+        Entry previous = entries.get(song.getId());
+        tagIds = previous != null ? previous.tagIds : new long[0];
+      }
+      Entry entry = new Entry(song.getId(), key(song.getOwnerId()), song.getCategory(), Boolean.TRUE.equals(song.getIsFavorite()),
+          song.getScore() == null ? 1 : Math.max(1, song.getScore()), tagIds);
+      removeLocked(song.getId());
+      entries.put(entry.id, entry);
+      Pool pool = pools.computeIfAbsent(entry.owner, o -> new Pool());
+      pool.all.add(entry.id, entry.weight);
+      if (entry.favorite) {
+        pool.favorites.add(entry.id, entry.weight);
+      }
+      if (entry.category != null) {
+        pool.byCategory.computeIfAbsent(entry.category, c -> new IdSet()).add(entry.id, entry.weight);
+      }
+      for (long tagId : entry.tagIds) {
+        pool.byTag.computeIfAbsent(tagId, t -> new IdSet()).add(entry.id, entry.weight);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // タグの ID（タグのコレクションを読み込んでいなければ null）
+  private static long[] tagIds(Song song) {
+    if (song.getTags() == null) {
+      return new long[0];
+    }
+    if (!Hibernate.isInitialized(song.getTags())) {
+      return null;
+    }
+    return song.getTags().stream().mapToLong(Tag::getId).toArray();
+  }
+
+  // 曲を削除
+  public void remove(Long songId) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(songId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeLocked(Long songId) {
+    Entry entry = entries.remove(songId);
+    if (entry == null) {
+      return;
+    }
+    Pool pool = pools.get(entry.owner);
+    pool.all.remove(entry.id);
+    pool.favorites.remove(entry.id);
+    if (entry.category != null) {
+      removeFrom(pool.byCategory, entry.category, entry.id);
+    }
+    for (long tagId : entry.tagIds) {
+      removeFrom(pool.byTag, tagId, entry.id);
+    }
+    if (pool.all.size == 0) {
+      pools.remove(entry.owner);
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static long key(Long ownerId) {
+    return ownerId == null ? SHARED : ownerId;
+  }
+
+  private static <K> void removeFrom(Map<K, IdSet> sets, K key, long id) {
+    IdSet set = sets.get(key);
+    if (set != null) {
+      set.remove(id);
+      if (set.size == 0) {
+        sets.remove(key);
+      }
+    }
+  }
+
+  // ownerId のユーザーの曲から条件に合う曲を1曲選ぶ（ログイン中なら、そのユーザーに直近 noRepeat 件で選んだ曲は選ばない）
+  // 履歴は所有者ごとなので、未ログイン（共有レパートリー）では noRepeat を使わない
+  public Optional<Long> pick(Long ownerId, Long tagId, String category, boolean favoritesOnly, boolean weightByScore,
+      int noRepeat) {
+    int repeatWindow = ownerId == null ? 0 : Math.max(0, Math.min(noRepeat, MAX_NO_REPEAT));
+    List<Long> recent = repeatWindow == 0 ? List.of() : recentPicks(ownerId);
+
+    Long picked;
+    lock.readLock().lock();
+    try {
+      // 候補が最も少ない索引から引き、残りの条件は引いた曲で確かめる
+      Pool pool = pools.getOrDefault(key(ownerId), Pool.EMPTY);
+      IdSet source = pool.all;
+      for (IdSet candidate : new IdSet[] {
+          tagId == null ? null : pool.byTag.getOrDefault(tagId, IdSet.EMPTY),
+          category == null ? null : pool.byCategory.getOrDefault(category, IdSet.EMPTY),
+          favoritesOnly ? pool.favorites : null}) {
+        if (candidate != null && candidate.size < source.size) {
+          source = candidate;
+        }
+      }
+      Filter filter = new Filter(tagId, category, favoritesOnly, recent);
+      picked = pickFrom(source, filter, weightByScore);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    if (picked != null && repeatWindow > 0) {
+      remember(ownerId, picked, repeatWindow);
+    }
+    return Optional.ofNullable(picked);
+  }
+
+  private Long pickFrom(IdSet source, Filter filter, boolean weightByScore) {
+    if (source.size == 0) {
+      return null;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      long id = weightByScore ? source.pickWeighted(random) : source.pickUniform(random);
+      if (filter.accepts(entries.get(id))) {
+        return id;
+      }
+    }
+
+    // 条件に合う曲が少ない場合は候補を列挙して選ぶ
+    List<Entry> eligible = new ArrayList<>();
+    long totalWeight = 0;
+    for (int i = 0; i < source.size; i++) {
+      Entry entry = entries.get(source.ids[i]);
+      if (filter.accepts(entry)) {
+        eligible.add(entry);
+        totalWeight += weightByScore ? entry.weight : 1;
+      }
+    }
+    if (eligible.isEmpty()) {
+      return null;
+    }
+    long target = random.nextLong(totalWeight);
+    for (Entry entry : eligible) {
+      target -= weightByScore ? entry.weight : 1;
+      if (target < 0) {
+        return entry.id;
+      }
+    }
+    return eligible.get(eligible.size() - 1).id;
+  }
+
+  private List<Long> recentPicks(Long userId) {
+    synchronized (history) {
+      Deque<Long> picks = history.get(userId);
+      return picks == null ? List.of() : List.copyOf(picks);
+    }
+  }
+
+  private void remember(Long userId, Long songId, int window) {
+    synchronized (history) {
+      Deque<Long> picks = history.computeIfAbsent(userId, k -> new ArrayDeque<>());
+      picks.addFirst(songId);
+      while (picks.size() > window) {
+        picks.removeLast();
+      }
+    }
+  }
+
+  private record Entry(long id, long owner, String category, boolean favorite, int weight, long[] tagIds) {
+  }
+
+  private record Filter(Long tagId, String category, boolean favoritesOnly, List<Long> recent) {
+    boolean accepts(Entry entry) {
+      if (favoritesOnly && !entry.favorite) {
+        return false;
+      }
+      if (category != null && !category.equals(entry.category)) {
+        return false;
+      }
+      if (tagId != null && Arrays.stream(entry.tagIds).noneMatch(t -> t == tagId)) {
+        return false;
+      }
+      return !recent.contains(entry.id);
+    }
+  }
+
+  // 1ユーザー分の索引
+  private static final class Pool {
+    static final Pool EMPTY = new Pool();
+
+    final IdSet all = new IdSet();
+    final IdSet favorites = new IdSet();
+    final Map<Long, IdSet> byTag = new HashMap<>();
+    final Map<String, IdSet> byCategory = new HashMap<>();
+  }
+
+  // 位置を持つ ID 集合（削除は末尾との入れ替えで O(1)）と、位置ごとの重みの Fenwick 木
+  private static final class IdSet {
+    static final IdSet EMPTY = new IdSet();
+
+    long[] ids = new long[8];
+    long[] tree = new long[9]; // 1 始まりの Fenwick 木
+    int[] weights = new int[8];
+    int size;
+    final Map<Long, Integer> positions = new HashMap<>();
+
+    void add(long id, int weight) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+        rebuildTree();
+      }
+      ids[size] = id;
+      weights[size] = weight;
+      positions.put(id, size);
+      update(size, weight);
+      size++;
+    }
+
+    void remove(long id) {
+      Integer pos = positions.remove(id);
+      if (pos == null) {
+        return;
+      }
+      int last = size - 1;
+      update(pos, -weights[pos]);
+      if (pos != last) {
+        update(last, -weights[last]);
+        ids[pos] = ids[last];
+        weights[pos] = weights[last];
+        update(pos, weights[pos]);
+        positions.put(ids[pos], pos);
+      }
+      size--;
+    }
+
+    long pickUniform(ThreadLocalRandom random) {
+      return ids[random.nextInt(size)];
+    }
+
+    // 重みの累積和が乱数を超える最初の位置を木の上から二分探索で求める
+    long pickWeighted(ThreadLocalRandom random) {
+      long target = random.nextLong(prefixSum(size));
+      int pos = 0;
+      for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+        int next = pos + step;
+        if (next < tree.length && tree[next] <= target) {
+          pos = next;
+          target -= tree[next];
+        }
+      }
+      return ids[Math.min(pos, size - 1)];
+    }
+
+    private void update(int index, long delta) {
+      for (int i = index + 1; i < tree.length; i += i & -i) {
+        tree[i] += delta;
+      }
+    }
+
+    private long prefixSum(int count) {
+      long sum = 0;
+      for (int i = count; i > 0; i -= i & -i) {
+        sum += tree[i];
+      }
+      return sum;
+    }
+
+    private void rebuildTree() {
+      tree = new long[ids.length + 1];
+      for (int i = 0; i < size; i++) {
+        update(i, weights[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.example.songrepertoire.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// キーごとのトークンバケット（1分あたり perMinute 個補充し、最大 burst 個まで貯まる）
+// バケットは「満杯に戻る時刻」を AtomicLong 1つで持ち（GCRA）、ロックを取らずに CAS だけで取り出す
+// 満杯に戻ったキーは持っていなくても同じなので cleanUp で捨てる
+// キーが maxKeys に達したら、満杯に近い（しばらく使われていない）キーから捨てて新しいキーを受け付ける
+public class RateLimiter {
+
+  // キーが多すぎるときに掃除する最短の間隔
+  private static final long CLEAN_UP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  // 掃除しても maxKeys に達しているとき、1回に捨てるキーの割合（1/EVICT_DIVISOR。並べ替えの回数を抑える）
+  private static final int EVICT_DIVISOR = 10;
+
+  private final String name;
+  private final long intervalNanos; // トークン1個の補充にかかる時間
+  private final long capacityNanos; // 空から満杯になるまでの時間
+  // 持っておくキーの上限（キーを使い捨てる攻撃でメモリを使い切らない）
+  private final int maxKeys;
+  private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  private final LongSupplier nanoTime;
+  private final AtomicLong lastCleanUp;
+
+  public RateLimiter(String name, int perMinute, int burst, int maxKeys) {
+    this(name, perMinute, burst, maxKeys, System::nanoTime);
+  }
+
+  // nanoTime は時刻の取得元（テストで時計を進めるため）
+  RateLimiter(String name, int perMinute, int burst, int maxKeys, LongSupplier nanoTime) {
+    this.name = name;
+    this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+    this.capacityNanos = intervalNanos * Math.max(1, burst);
+    this.maxKeys = maxKeys;
+    this.nanoTime = nanoTime;
+    this.lastCleanUp = new AtomicLong(nanoTime.getAsLong());
+  }
+
+  public String name() {
+    return name;
+  }
+
+  // key のバケットから1個取り出す。取り出せたら 0、空なら次に取り出せるまでの時間（ナノ秒）
+  public long tryAcquire(String key) {
+    long now = nanoTime.getAsLong();
+    AtomicLong bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= maxKeys) {
+        cleanUp(now, false);
+        if (buckets.size() >= maxKeys) {
+          evictIdle(now);
+        }
+      }
+      bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+    while (true) {
+      long fullAt = bucket.get();
+      long next = Math.max(fullAt, now) + intervalNanos;
+      long wait = next - now - capacityNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (bucket.compareAndSet(fullAt, next)) {
+        return 0;
+      }
+    }
+  }
+
+  // 満杯に戻ったキーを捨てる（捨てる直前に取り出されたトークンは数え漏れるが、その分ゆるくなるだけ）
+  public void cleanUp() {
+    cleanUp(nanoTime.getAsLong(), true);
+  }
+
+  private void cleanUp(long now, boolean force) {
+    long last = lastCleanUp.get();
+    if (!force && (now - last < CLEAN_UP_INTERVAL_NANOS || !lastCleanUp.compareAndSet(last, now))) {
+      return;
+    }
+    buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+  }
+
+  // 満杯に戻る時刻が早い順に 1/EVICT_DIVISOR のキーを捨てる
+  // 捨てたキーは満杯からやり直しになるが、残っていたトークンが一番多いキーなのでゆるくなる分は小さい
+  // 正規のクライアントを締め出さないよう、新しいキーを断る（全員に 429 を返す）代わりにこうする
+  private synchronized void evictIdle(long now) {
+    if (buckets.size() < maxKeys) {
+      return;
+    }
+    long[] fullAts = buckets.values().stream().mapToLong(AtomicLong::get).toArray();
+    if (fullAts.length == 0) {
+      return;
+    }
+    Arrays.sort(fullAts);
+    long threshold = fullAts[Math.min(fullAts.length - 1, fullAts.length / EVICT_DIVISOR)];
+    buckets.values().removeIf(bucket -> bucket.get() <= threshold);
+    lastCleanUp.set(now);
+  }
+
+  public int size() {
+    return buckets.size();
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.songrepertoire.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// 認証と書き込みのレート制限（IP ごとの認証・アカウントごとのログイン・IP ごとの書き込み）
+// 制限したリクエストは app.rate.limited（limit タグ付き）で数える
+@Component
+public class RateLimits {
+
+  private final RateLimiter authByIp;
+  private final RateLimiter loginByAccount;
+  private final RateLimiter writeByIp;
+  private final MeterRegistry meterRegistry;
+
+  public RateLimits(MeterRegistry meterRegistry,
+      @Value("${app.rate-limit.auth-ip.per-minute:30}") int authIpPerMinute,
+      @Value("${app.rate-limit.auth-ip.burst:10}") int authIpBurst,
+      @Value("${app.rate-limit.login-account.per-minute:5}") int loginAccountPerMinute,
+      @Value("${app.rate-limit.login-account.burst:5}") int loginAccountBurst,
+      @Value("${app.rate-limit.write-ip.per-minute:600}") int writeIpPerMinute,
+      @Value("${app.rate-limit.write-ip.burst:100}") int writeIpBurst,
+      @Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+    this.meterRegistry = meterRegistry;
+    this.authByIp = new RateLimiter("auth-ip", authIpPerMinute, authIpBurst, maxKeys);
+    this.loginByAccount = new RateLimiter("login-account", loginAccountPerMinute, loginAccountBurst, maxKeys);
+    this.writeByIp = new RateLimiter("write-ip", writeIpPerMinute, writeIpBurst, maxKeys);
+  }
+
+  public RateLimiter authByIp() {
+    return authByIp;
+  }
+
+  public RateLimiter writeByIp() {
+    return writeByIp;
+  }
+
+  // limiter から1回分取り出す。取り出せたら 0、制限するなら Retry-After の秒数
+  public long acquire(RateLimiter limiter, String key) {
+    long waitNanos = limiter.tryAcquire(key);
+    if (waitNanos == 0) {
+      return 0;
+    }
+    Counter.builder("app.rate.limited")
+        .description("レート制限で断ったリクエスト数")
+        .tag("limit", limiter.name())
+        .register(meterRegistry)
+        .increment();
+    return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+  }
+
+  // 同じアカウント（メールアドレス）へのログインを制限する（パスワードの総当たり対策）
+  public void checkLogin(String email) {
+    String key = email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    long retryAfter = acquire(loginByAccount, key);
+    if (retryAfter > 0) {
+      throw new TooManyRequestsException("ログインの試行が多すぎます", retryAfter);
+    }
+  }
+
+  // 満杯に戻ったバケットを定期的に捨てる
+  @Scheduled(fixedDelayString = "${app.rate-limit.clean-up-interval-ms:60000}")
+  public void cleanUp() {
+    for (RateLimiter limiter : List.of(authByIp, loginByAccount, writeByIp)) {
+      limiter.cleanUp();
+    }
+  }
+}
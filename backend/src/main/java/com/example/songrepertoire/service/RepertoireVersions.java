@@ -0,0 +1,80 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.SongSnapshot;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 所有者ごとのレパートリーのバージョン（曲が書き込まれるたびに進める）
+// 一覧・詳細・統計の ETag / Last-Modified に使い、変化がなければ DB を引かずに 304 を返せるようにする
+@Component
+public class RepertoireVersions {
+
+  // 所有者なし（共有レパートリー）のキー
+  private static final long SHARED = 0L;
+
+  // 起動ごとに変わる値（再起動でバージョンが 0 に戻っても以前の ETag と一致しないようにする）
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+  private final Instant startedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+  private final Map<Long, Stamp> stamps = new ConcurrentHashMap<>();
+
+  // 現在のバージョン
+  public Stamp current(Long ownerId) {
+    long key = key(ownerId);
+    Stamp stamp = stamps.get(key);
+    return stamp != null ? stamp : new Stamp(epoch + "-" + key + "-0", startedAt);
+  }
+
+  // 曲の変更がコミットされたら所有者のバージョンを進める
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSongChanged(SongChangedEvent event) {
+    SongSnapshot before = event.before();
+    SongSnapshot after = event.after();
+    if (before != null) {
+      bump(before.ownerId());
+    }
+    if (after != null && (before == null || !Objects.equals(before.ownerId(), after.ownerId()))) {
+      bump(after.ownerId());
+    }
+  }
+
+  // 所有者のバージョンを進める（曲の変更のほか、練習の記録などのコミット後にも呼ぶ）
+  public void bump(Long ownerId) {
+    long key = key(ownerId);
+    // Last-Modified は秒単位なので、同じ秒に続けて書き込まれたら前回より1秒進める
+    // （同じ値のままだと、If-Modified-Since だけで確かめるクライアントに古い内容で 304 を返してしまう）
+    Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    stamps.compute(key, (k, stamp) -> {
+      long version = stamp == null ? 1 : stamp.version() + 1;
+      Instant previous = stamp == null ? startedAt : stamp.lastModified();
+      Instant modified = now.isAfter(previous) ? now : previous.plusSeconds(1);
+      return new Stamp(epoch + "-" + k + "-" + version, modified, version);
+    });
+  }
+
+  private static long key(Long ownerId) {
+    return ownerId == null ? SHARED : ownerId;
+  }
+
+  // ETag に使う値と最終更新日時
+  public record Stamp(String tag, Instant lastModified, long version) {
+    Stamp(String tag, Instant lastModified) {
+      this(tag, lastModified, 0);
+    }
+
+    // 弱い ETag にする（Tomcat は強い ETag の応答を圧縮しない。圧縮の有無で本文のバイト列が変わっても内容は同じ）
+    public String etag() {
+      return etag(null);
+    }
+
+    // variant は同じ URL で形式が違う本文（小さい形式など）を区別する
+    public String etag(String variant) {
+      return "W/\"" + tag + (variant == null ? "" : "-" + variant) + "\"";
+    }
+  }
+}
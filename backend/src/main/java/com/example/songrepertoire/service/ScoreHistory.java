@@ -0,0 +1,258 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.ScoreEntry;
+import com.example.songrepertoire.model.ScoreRollup;
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.repository.ScoreEntryRepository;
+import com.example.songrepertoire.repository.ScoreRollupRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// スコアの記録（曲ごとの推移）と日別・週別の集計
+// 記録は曲の書き込みと同じトランザクションでコミット直前にまとめて追加し、集計もその場で差分更新する
+// 推移の取得は集計だけを読むので、記録の件数が増えても速さは変わらない
+// 曲を削除したら、その曲の記録と曲ごとの集計も消す（アーティストの集計には記録した時点の値として残す）
+@Service
+public class ScoreHistory {
+
+  // 所有者なし（共有レパートリー）のキー
+  private static final long SHARED = 0L;
+  // 1回に返す記録の最大件数
+  public static final int MAX_ENTRIES = 500;
+
+  private final ScoreEntryRepository scoreEntryRepository;
+  private final ScoreRollupRepository scoreRollupRepository;
+  private final SongService songService;
+  private final RepertoireVersions repertoireVersions;
+  private final TransactionTemplate transactionTemplate;
+
+  // 集計の読み込みからコミットまでを直列にする（同じ期間の集計行を同時に作らない）
+  private final ReentrantLock rollupLock = new ReentrantLock();
+
+  public ScoreHistory(ScoreEntryRepository scoreEntryRepository, ScoreRollupRepository scoreRollupRepository,
+      SongService songService, RepertoireVersions repertoireVersions, PlatformTransactionManager transactionManager) {
+    this.scoreEntryRepository = scoreEntryRepository;
+    this.scoreRollupRepository = scoreRollupRepository;
+    this.songService = songService;
+    this.repertoireVersions = repertoireVersions;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  // 曲のスコアが変わったら記録する（登録・更新・一括更新・インポートのどれでも）。削除なら記録を消す
+  @EventListener
+  public void onSongChanged(SongChangedEvent event) {
+    Song song = event.song();
+    if (song == null) {
+      withPending(pending -> pending.deletedSongIds().add(event.songId()));
+      return;
+    }
+    if (song.getScore() == null
+        || (event.before() != null && Objects.equals(event.before().score(), song.getScore()))) {
+      return;
+    }
+    ScoreEntry entry = entryOf(song);
+    withPending(pending -> pending.entries().add(entry));
+  }
+
+  // 練習結果を記録する（曲のスコア・機種・キーも記録の内容に合わせる）
+  // スコアが変わる場合は曲の更新から記録されるので、ここではスコアが同じときだけ記録を追加する
+  @Transactional
+  public ScoreEntry recordPractice(Long ownerId, Long songId, Integer score, String machine, Integer keyAdjustment) {
+    if (score == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "score は必須です");
+    }
+    Song song = songService.findById(ownerId, songId)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "曲が見つかりません"));
+    boolean scoreChanged = !score.equals(song.getScore());
+    boolean changed = scoreChanged;
+    song.setScore(score);
+    if (machine != null && !machine.equals(song.getMachine())) {
+      song.setMachine(machine);
+      changed = true;
+    }
+    if (keyAdjustment != null && !keyAdjustment.equals(song.getKeyAdjustment())) {
+      song.setKeyAdjustment(keyAdjustment);
+      changed = true;
+    }
+    if (changed) {
+      song = songService.save(song);
+    }
+    List<ScoreEntry> entries = pending().entries();
+    if (!scoreChanged) {
+      entries.add(entryOf(song));
+    }
+    return entries.get(entries.size() - 1);
+  }
+
+  private static ScoreEntry entryOf(Song song) {
+    return new ScoreEntry(null, song.getOwnerId(), song.getId(), song.getArtist(), song.getScore(),
+        song.getMachine(), song.getKeyAdjustment(), LocalDateTime.now());
+  }
+
+  // トランザクション中ならコミット直前にまとめて書き込む（なければ新しいトランザクションで書き込む）
+  private void withPending(Consumer<Pending> change) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      change.accept(pending());
+    } else {
+      transactionTemplate.executeWithoutResult(status -> change.accept(pending()));
+    }
+  }
+
+  // このトランザクションで書き込む内容（最初の1件でコミット時の書き込みを登録する）
+  private Pending pending() {
+    Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      Pending created = new Pending(new ArrayList<>(), new HashSet<>());
+      TransactionSynchronizationManager.bindResource(this, created);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void beforeCommit(boolean readOnly) {
+          rollupLock.lock();
+          write(created);
+        }
+
+        // 練習の記録だけ（曲は変わらない）でも推移の ETag が変わるよう、記録した所有者のバージョンを進める
+        @Override
+        public void afterCommit() {
+          created.entries().stream().map(ScoreEntry::getOwnerId).distinct().forEach(repertoireVersions::bump);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResource(ScoreHistory.this);
+          if (rollupLock.isHeldByCurrentThread()) {
+            rollupLock.unlock();
+          }
+        }
+
+        // 変更履歴の書き込み（commitOrder のロック）より必ず先に実行する
+        // 登録の順番によらず rollupLock → commitOrder の順に取るので、2つのトランザクションが逆順に待ち合わない
+        @Override
+        public int getOrder() {
+          return SongChangeLog.COMMIT_ORDER - 1;
+        }
+      });
+      pending = created;
+    }
+    return pending;
+  }
+
+  // 削除した曲の記録と集計を消し、記録を追加して対象（曲・アーティスト）ごとの日別・週別の集計に加える
+  private void write(Pending pending) {
+    Set<Long> deleted = pending.deletedSongIds();
+    if (!deleted.isEmpty()) {
+      scoreEntryRepository.deleteBySongIdIn(deleted);
+      scoreRollupRepository.deleteBySubjectIn(deleted.stream().map(ScoreHistory::songSubject).toList());
+      pending.entries().removeIf(entry -> deleted.contains(entry.getSongId()));
+    }
+    List<ScoreEntry> entries = pending.entries();
+    if (entries.isEmpty()) {
+      return;
+    }
+    scoreEntryRepository.saveAll(entries);
+
+    // 更新する集計はまとめて読み込んでから更新する（なければ作る）
+    Set<String> keys = new HashSet<>();
+    for (ScoreEntry entry : entries) {
+      for (Period period : periodsOf(entry.getRecordedAt().toLocalDate())) {
+        keys.add(ScoreRollup.keyOf(songSubject(entry.getSongId()), period.granularity(), period.start()));
+        keys.add(ScoreRollup.keyOf(artistSubject(entry.getOwnerId(), entry.getArtist()), period.granularity(), period.start()));
+      }
+    }
+    Map<String, ScoreRollup> rollups = new HashMap<>();
+    for (ScoreRollup rollup : scoreRollupRepository.findByRollupKeyIn(keys)) {
+      rollups.put(rollup.getRollupKey(), rollup);
+    }
+    List<ScoreRollup> created = new ArrayList<>();
+    for (ScoreEntry entry : entries) {
+      for (Period period : periodsOf(entry.getRecordedAt().toLocalDate())) {
+        for (String subject : List.of(songSubject(entry.getSongId()), artistSubject(entry.getOwnerId(), entry.getArtist()))) {
+          rollups.computeIfAbsent(ScoreRollup.keyOf(subject, period.granularity(), period.start()), key -> {
+            ScoreRollup rollup = new ScoreRollup(subject, period.granularity(), period.start());
+            created.add(rollup);
+            return rollup;
+          }).add(entry.getScore());
+        }
+      }
+    }
+    scoreRollupRepository.saveAll(created);
+  }
+
+  private static List<Period> periodsOf(LocalDate date) {
+    return List.of(new Period(ScoreRollup.Granularity.DAY, date),
+        new Period(ScoreRollup.Granularity.WEEK, date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))));
+  }
+
+  private static String songSubject(Long songId) {
+    return "song:" + songId;
+  }
+
+  private static String artistSubject(Long ownerId, String artist) {
+    return "artist:" + (ownerId == null ? SHARED : ownerId) + ":" + artist;
+  }
+
+  // 曲の記録を新しい順に取得
+  @Transactional(readOnly = true)
+  public List<ScoreEntry> entries(Long ownerId, Long songId, int limit) {
+    requireSong(ownerId, songId);
+    return scoreEntryRepository.findBySongIdOrderByRecordedAtDesc(songId, Limit.of(Math.max(1, Math.min(limit, MAX_ENTRIES))));
+  }
+
+  // 曲のスコアの推移（from から to までの期間ごとの集計）
+  @Transactional(readOnly = true)
+  public List<ScoreRollup> songProgress(Long ownerId, Long songId, ScoreRollup.Granularity granularity,
+      LocalDate from, LocalDate to) {
+    requireSong(ownerId, songId);
+    return progress(songSubject(songId), granularity, from, to);
+  }
+
+  // アーティストのスコアの推移（そのアーティストの曲すべての記録をまとめたもの）
+  @Transactional(readOnly = true)
+  public List<ScoreRollup> artistProgress(Long ownerId, String artist, ScoreRollup.Granularity granularity,
+      LocalDate from, LocalDate to) {
+    return progress(artistSubject(ownerId, artist), granularity, from, to);
+  }
+
+  private List<ScoreRollup> progress(String subject, ScoreRollup.Granularity granularity, LocalDate from, LocalDate to) {
+    if (granularity == ScoreRollup.Granularity.WEEK) {
+      from = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+    return scoreRollupRepository.findRange(subject, granularity, from, to);
+  }
+
+  private void requireSong(Long ownerId, Long songId) {
+    if (songService.findById(ownerId, songId).isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "曲が見つかりません");
+    }
+  }
+
+  private record Period(ScoreRollup.Granularity granularity, LocalDate start) {
+  }
+
+  // このトランザクションで追加する記録と、記録を消す曲
+  private record Pending(List<ScoreEntry> entries, Set<Long> deletedSongIds) {
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.SongChange;
+import com.example.songrepertoire.model.SongSnapshot;
+import com.example.songrepertoire.repository.SongChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 曲の変更履歴（差分同期 GET /api/songs/changes 用）
+// 曲の書き込みと同じトランザクションで履歴を追加し、クライアントは前回のバージョン以降の変更だけを受け取る
+// アプリは1インスタンスで動かすこと。バージョンの順にコミットされることはこの JVM の中のロック（commitOrder）と
+// インスタンスごとに先取りしたシーケンス番号で保っているので、複数インスタンスで同じ DB に書き込むと
+// 小さいバージョンが後からコミットされ、同期で取りこぼす。複数台にする場合はバージョンを DB 側で直列に採番する
+@Service
+public class SongChangeLog {
+
+  private static final Logger log = LoggerFactory.getLogger(SongChangeLog.class);
+
+  // 1回の同期で返す最大件数
+  public static final int MAX_CHANGES = 500;
+  // コミット直前の処理の中で履歴を書き込む順番（ロックを取るほかの処理はこれより先に実行し、取る順番を固定する）
+  public static final int COMMIT_ORDER = Ordered.LOWEST_PRECEDENCE;
+
+  private final SongChangeRepository songChangeRepository;
+  private final SongService songService;
+  private final int retentionDays;
+
+  // 履歴の採番からコミットまでを直列にする（バージョンの順にコミットされ、同期で取りこぼさない）
+  // JVM の中だけのロックなので、ほかのインスタンスの書き込みとは直列にならない（クラスのコメントを参照）
+  private final ReentrantLock commitOrder = new ReentrantLock();
+
+  public SongChangeLog(SongChangeRepository songChangeRepository, SongService songService,
+      @Value("${app.changes.retention-days:30}") int retentionDays) {
+    this.songChangeRepository = songChangeRepository;
+    this.songService = songService;
+    this.retentionDays = retentionDays;
+  }
+
+  // 曲の変更をコミット直前に履歴へ追加する（ロックはトランザクションの完了時に外す）
+  @Order(COMMIT_ORDER)
+  @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+  public void onSongChanged(SongChangedEvent event) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      commitOrder.lock();
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          commitOrder.unlock();
+        }
+      });
+    }
+    SongSnapshot before = event.before();
+    SongSnapshot after = event.after();
+    LocalDateTime now = LocalDateTime.now();
+    List<SongChange> changes = new ArrayList<>(2);
+    if (after == null) {
+      changes.add(new SongChange(null, before.ownerId(), event.songId(), true, now));
+    } else {
+      // 所有者が変わった場合は元の所有者には削除として伝える
+      if (before != null && !Objects.equals(before.ownerId(), after.ownerId())) {
+        changes.add(new SongChange(null, before.ownerId(), event.songId(), true, now));
+      }
+      changes.add(new SongChange(null, after.ownerId(), event.songId(), false, now));
+    }
+    songChangeRepository.saveAll(changes);
+  }
+
+  // 現在のバージョン（同期の起点。履歴がなければ 0）
+  public long currentVersion() {
+    Long latest = songChangeRepository.findLatestVersion();
+    return latest == null ? 0 : latest;
+  }
+
+  // since より後の変更（更新された曲と削除された曲の ID）を最大 limit 件分まとめて返す
+  // 同じ曲の変更は最後のものだけにする。保持期間外の since なら 410 を返し、全件を取り直させる
+  @Transactional(readOnly = true)
+  public SongChanges changesSince(Long ownerId, long since, int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_CHANGES));
+    Long oldest = songChangeRepository.findOldestVersion();
+    if (oldest != null && since < oldest - 1) {
+      throw new ResponseStatusException(HttpStatus.GONE, "変更履歴が保持期間を過ぎています。全件を取得し直してください");
+    }
+    List<SongChange> changes = songChangeRepository.findChangesSince(ownerId, since, Limit.of(size + 1));
+    boolean hasMore = changes.size() > size;
+    if (hasMore) {
+      changes = changes.subList(0, size);
+    }
+    long version = changes.isEmpty() ? Math.max(since, currentVersion()) : changes.get(changes.size() - 1).getId();
+
+    Map<Long, Boolean> latest = new LinkedHashMap<>();
+    for (SongChange change : changes) {
+      latest.remove(change.getSongId());
+      latest.put(change.getSongId(), change.isDeleted());
+    }
+    List<Long> upserted = new ArrayList<>();
+    List<Long> deleted = new ArrayList<>();
+    latest.forEach((songId, isDeleted) -> (isDeleted ? deleted : upserted).add(songId));
+
+    // 履歴の後に削除された曲は、次の同期を待たずに削除として返す
+    List<Song> songs = new ArrayList<>();
+    for (Song song : songService.findAllByIdsInOrder(upserted)) {
+      if (Objects.equals(song.getOwnerId(), ownerId)) {
+        songs.add(song);
+      }
+    }
+    if (songs.size() < upserted.size()) {
+      List<Long> found = songs.stream().map(Song::getId).toList();
+      upserted.stream().filter(id -> !found.contains(id)).forEach(deleted::add);
+    }
+    return new SongChanges(songs, deleted, version, hasMore);
+  }
+
+  // 保持期間を過ぎた履歴を削除（削除した位置より前の since は同期できなくなる）
+  @Scheduled(cron = "${app.changes.prune-cron:0 30 4 * * *}")
+  @Transactional
+  public void prune() {
+    int removed = songChangeRepository.deleteByChangedAtBefore(LocalDateTime.now().minusDays(retentionDays));
+    if (removed > 0) {
+      log.info("保持期間を過ぎた変更履歴を削除しました: {} 件", removed);
+    }
+  }
+
+  // 差分同期の結果
+  public record SongChanges(List<Song> songs, List<Long> deletedIds, long version, boolean hasMore) {
+  }
+}
@@ -0,0 +1,14 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.SongSnapshot;
+
+// 曲の登録・更新・削除をコミット後のリスナーへ通知するイベント
+// 登録時は before が null、削除時は song が null になる
+public record SongChangedEvent(Long songId, SongSnapshot before, Song song) {
+
+  // 変更後の集計対象項目（削除時は null）
+  public SongSnapshot after() {
+    return song == null ? null : SongSnapshot.of(song);
+  }
+}
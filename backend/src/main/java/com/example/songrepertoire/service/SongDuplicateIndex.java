@@ -0,0 +1,434 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.util.TextNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 重複していそうな曲の索引（曲名・アーティストを正規化した bigram の MinHash を LSH のバケットに登録）
+// 登録時の判定はバケットに入っている候補だけを比べ、重複レポートもバケット内の組だけを比べるので全曲の総当たりをしない
+@Component
+public class SongDuplicateIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(SongDuplicateIndex.class);
+
+  // 重複とみなす類似度（曲名・アーティストの bigram の Jaccard 係数）
+  public static final double THRESHOLD = 0.7;
+  // MinHash の長さと LSH の分け方（BANDS × ROWS = HASHES。類似度 0.7 で約 9 割、0.5 で約 4 割が候補になる）
+  private static final int BANDS = 8;
+  private static final int ROWS = 4;
+  private static final int HASHES = BANDS * ROWS;
+  private static final long[] SEEDS = new long[HASHES];
+  // 所有者なし（共有レパートリー）の曲のキー
+  private static final long SHARED = 0L;
+
+  static {
+    long seed = 0x9E3779B97F4A7C15L;
+    for (int i = 0; i < HASHES; i++) {
+      seed = mix(seed + i);
+      SEEDS[i] = seed;
+    }
+  }
+
+  private final SongService songService;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // 所有者 → バンドのハッシュ → そのバンドが一致する曲 ID
+  private final Map<Long, Map<Long, Bucket>> bucketsByOwner = new HashMap<>();
+  // 曲 ID → 所有者と bigram・バンドのハッシュ（比較と更新・削除時にバケットから外すため）
+  private final Map<Long, Document> documents = new HashMap<>();
+  // 構築中に変更イベントで反映した曲の ID（構築が終わったら null）
+  // 構築で先に読んだ古い内容で、更新を戻したり削除した曲を復活させたりしない
+  private volatile Set<Long> changedDuringRebuild = new HashSet<>();
+  private volatile boolean ready;
+
+  public SongDuplicateIndex(SongService songService) {
+    this.songService = songService;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  // 起動時に DB の全曲から構築する
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Thread.ofVirtual().name("song-duplicate-rebuild").start(() -> {
+      long start = System.currentTimeMillis();
+      songService.forEachSong(songs -> songs.forEach(this::restore));
+      lock.writeLock().lock();
+      try {
+        changedDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      ready = true;
+      log.info("重複判定の索引を構築しました: {} 曲, {} ms", size(), System.currentTimeMillis() - start);
+    });
+  }
+
+  // 曲の変更をコミット後に反映
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSongChanged(SongChangedEvent event) {
+    markChanged(event.songId());
+    if (event.song() == null) {
+      remove(event.songId());
+    } else {
+      index(event.song());
+    }
+  }
+
+  private void markChanged(Long songId) {
+    if (changedDuringRebuild == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (changedDuringRebuild != null) {
+        changedDuringRebuild.add(songId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 構築で読んだ曲を登録（構築中に変更イベントが届いた曲は、イベントの内容のままにする）
+  private void restore(Song song) {
+    lock.writeLock().lock();
+    try {
+      if (!changedDuringRebuild.contains(song.getId())) {
+        index(song);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 曲を登録（すでにあれば置き換える）
+  public void index(Song song) {
+    Fingerprint fingerprint = Fingerprint.of(song.getTitle(), song.getArtist());
+    long owner = key(song.getOwnerId());
+    lock.writeLock().lock();
+    try {
+      removeLocked(song.getId());
+      Map<Long, Bucket> buckets = bucketsByOwner.computeIfAbsent(owner, o -> new HashMap<>());
+      for (long band : fingerprint.bands()) {
+        buckets.computeIfAbsent(band, b -> new Bucket()).add(song.getId());
+      }
+      documents.put(song.getId(), new Document(owner, fingerprint));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 曲を削除
+  public void remove(Long songId) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(songId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeLocked(Long songId) {
+    Document document = documents.remove(songId);
+    if (document == null) {
+      return;
+    }
+    Map<Long, Bucket> buckets = bucketsByOwner.get(document.owner());
+    for (long band : document.fingerprint().bands()) {
+      Bucket bucket = buckets.get(band);
+      if (bucket != null && bucket.remove(songId) && bucket.size == 0) {
+        buckets.remove(band);
+      }
+    }
+    if (buckets.isEmpty()) {
+      bucketsByOwner.remove(document.owner());
+    }
+  }
+
+  private static long key(Long ownerId) {
+    return ownerId == null ? SHARED : ownerId;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // ownerId のユーザーの曲のうち、title・artist と重複していそうな曲（類似度の高い順、excludeId は除く）
+  public List<Match> findSimilar(Long ownerId, String title, String artist, Long excludeId) {
+    Fingerprint fingerprint = Fingerprint.of(title, artist);
+    lock.readLock().lock();
+    try {
+      Map<Long, Bucket> buckets = bucketsByOwner.get(key(ownerId));
+      if (buckets == null) {
+        return List.of();
+      }
+      Set<Long> candidates = new HashSet<>();
+      for (long band : fingerprint.bands()) {
+        Bucket bucket = buckets.get(band);
+        if (bucket != null) {
+          for (int i = 0; i < bucket.size; i++) {
+            candidates.add(bucket.ids[i]);
+          }
+        }
+      }
+      candidates.remove(excludeId);
+      List<Match> matches = new ArrayList<>();
+      for (Long id : candidates) {
+        double similarity = fingerprint.similarity(documents.get(id).fingerprint());
+        if (similarity >= THRESHOLD) {
+          matches.add(new Match(id, similarity));
+        }
+      }
+      matches.sort(Comparator.comparingDouble(Match::similarity).reversed().thenComparing(Match::id));
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // ownerId のユーザーの重複していそうな曲のグループ（グループ内は ID 順、グループは先頭の ID 順）
+  // 同じバケットに入った組だけを比べ、重複とみなした組を union-find でまとめる
+  public List<List<Long>> findGroups(Long ownerId) {
+    Map<Long, Long> parents = new HashMap<>();
+    lock.readLock().lock();
+    try {
+      Map<Long, Bucket> buckets = bucketsByOwner.get(key(ownerId));
+      if (buckets == null) {
+        return List.of();
+      }
+      for (Bucket bucket : buckets.values()) {
+        if (bucket.size < 2) {
+          continue;
+        }
+        // 正規化した曲名・アーティストが同じ曲はそのまままとめ、異なるものの代表どうしだけを比べる
+        Map<Fingerprint, Long> representatives = new HashMap<>();
+        for (int i = 0; i < bucket.size; i++) {
+          long id = bucket.ids[i];
+          Long same = representatives.putIfAbsent(documents.get(id).fingerprint(), id);
+          if (same != null) {
+            union(parents, same, id);
+          }
+        }
+        List<Long> distinct = new ArrayList<>(representatives.values());
+        for (int i = 0; i < distinct.size(); i++) {
+          long a = distinct.get(i);
+          Fingerprint fingerprint = documents.get(a).fingerprint();
+          for (int j = i + 1; j < distinct.size(); j++) {
+            long b = distinct.get(j);
+            // すでに同じグループなら比べない
+            if (parents.containsKey(a) && parents.containsKey(b) && find(parents, a) == find(parents, b)) {
+              continue;
+            }
+            if (fingerprint.similarity(documents.get(b).fingerprint()) >= THRESHOLD) {
+              union(parents, a, b);
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    Map<Long, List<Long>> groups = new HashMap<>();
+    for (Long id : parents.keySet()) {
+      groups.computeIfAbsent(find(parents, id), root -> new ArrayList<>()).add(id);
+    }
+    List<List<Long>> result = new ArrayList<>(groups.size());
+    for (List<Long> group : groups.values()) {
+      group.sort(null);
+      result.add(group);
+    }
+    result.sort(Comparator.comparing(group -> group.get(0)));
+    return result;
+  }
+
+  private static long find(Map<Long, Long> parents, long id) {
+    long root = id;
+    Long parent;
+    while ((parent = parents.get(root)) != null && parent != root) {
+      root = parent;
+    }
+    // 経路を縮める
+    long current = id;
+    while (current != root) {
+      long next = parents.get(current);
+      parents.put(current, root);
+      current = next;
+    }
+    return root;
+  }
+
+  private static void union(Map<Long, Long> parents, long a, long b) {
+    parents.putIfAbsent(a, a);
+    parents.putIfAbsent(b, b);
+    long rootA = find(parents, a);
+    long rootB = find(parents, b);
+    if (rootA != rootB) {
+      parents.put(Math.max(rootA, rootB), Math.min(rootA, rootB));
+    }
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  // 重複していそうな曲があったときの扱い（ALLOW: 登録して知らせる、SKIP: 登録せずに既存の曲を使う、REJECT: エラーにする）
+  public enum Policy {
+    ALLOW, SKIP, REJECT
+  }
+
+  // 重複していそうな曲とその類似度
+  public record Match(Long id, double similarity) {
+  }
+
+  private record Document(long owner, Fingerprint fingerprint) {
+  }
+
+  // 曲名・アーティストの bigram（曲名とアーティストで別の gram として扱う）とその LSH のバンド
+  // 含まれる数字の並びが違う曲（「Part 1」と「Part 2」など）は別の曲とし、バンドにも数字の並びを混ぜて同じバケットに入れない
+  private record Fingerprint(long[] grams, long numbers, long[] bands) {
+
+    static Fingerprint of(String title, String artist) {
+      String titleKey = TextNormalizer.duplicateKey(title);
+      String artistKey = TextNormalizer.duplicateKey(artist);
+      Set<String> grams = new HashSet<>();
+      for (String gram : TextNormalizer.ngrams(titleKey, 2)) {
+        grams.add("t" + gram);
+      }
+      for (String gram : TextNormalizer.ngrams(artistKey, 2)) {
+        grams.add("a" + gram);
+      }
+      long[] hashes = new long[grams.size()];
+      int n = 0;
+      for (String gram : grams) {
+        hashes[n++] = mix(gram.hashCode());
+      }
+      Arrays.sort(hashes);
+      long numbers = mix(digits(titleKey + " " + artistKey).hashCode());
+
+      long[] minHash = new long[HASHES];
+      Arrays.fill(minHash, Long.MAX_VALUE);
+      for (long hash : hashes) {
+        for (int i = 0; i < HASHES; i++) {
+          minHash[i] = Math.min(minHash[i], mix(hash ^ SEEDS[i]));
+        }
+      }
+      long[] bands = new long[BANDS];
+      for (int band = 0; band < BANDS; band++) {
+        long h = numbers + band;
+        for (int row = 0; row < ROWS; row++) {
+          h = mix(h * 31 + minHash[band * ROWS + row]);
+        }
+        bands[band] = h;
+      }
+      return new Fingerprint(hashes, numbers, bands);
+    }
+
+    // 数字の並び（「ab12c3」なら「12 3」）
+    private static String digits(String text) {
+      StringBuilder sb = new StringBuilder();
+      boolean inNumber = false;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (Character.isDigit(c)) {
+          if (!inNumber && !sb.isEmpty()) {
+            sb.append(' ');
+          }
+          sb.append(c);
+          inNumber = true;
+        } else {
+          inNumber = false;
+        }
+      }
+      return sb.toString();
+    }
+
+    // Jaccard 係数（どちらも昇順のハッシュ列なので突き合わせるだけ）
+    double similarity(Fingerprint other) {
+      if (numbers != other.numbers) {
+        return 0;
+      }
+      long[] x = grams;
+      long[] y = other.grams;
+      if (x.length == 0 && y.length == 0) {
+        return 1.0;
+      }
+      int i = 0;
+      int j = 0;
+      int common = 0;
+      while (i < x.length && j < y.length) {
+        if (x[i] == y[j]) {
+          common++;
+          i++;
+          j++;
+        } else if (x[i] < y[j]) {
+          i++;
+        } else {
+          j++;
+        }
+      }
+      return (double) common / (x.length + y.length - common);
+    }
+
+    // 同じ曲名・アーティスト（正規化後）かどうかで比べる（バンドは grams と numbers から決まる）
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Fingerprint other && numbers == other.numbers && Arrays.equals(grams, other.grams);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(numbers) * 31 + Arrays.hashCode(grams);
+    }
+  }
+
+  // バンドが一致する曲 ID（順序は持たない）
+  private static final class Bucket {
+    long[] ids = new long[2];
+    int size;
+
+    void add(long id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    boolean remove(long id) {
+      for (int i = 0; i < size; i++) {
+        if (ids[i] == id) {
+          ids[i] = ids[--size];
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.controller.dto.SongResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// 曲の変更と統計を SSE（GET /api/events）で購読中のクライアントに配信する
+// 送信内容はイベントごとに1回だけ組み立て、クライアントごとの上限付きキューに積むだけなので書き込み側は待たない
+// 送信はクライアントごとの仮想スレッドが行い、キューがあふれた（受信が遅い）クライアントは切断する
+@Component
+public class SongEventBroadcaster {
+
+  private static final Logger log = LoggerFactory.getLogger(SongEventBroadcaster.class);
+
+  // 所有者なし（共有レパートリー）の購読キー
+  private static final long SHARED = 0L;
+  // 統計に含めるアーティスト数
+  private static final int STATS_ARTIST_LIMIT = 10;
+
+  private final ObjectMapper objectMapper;
+  private final StatsService statsService;
+  private final int bufferSize;
+  private final long timeoutMillis;
+
+  // 所有者 → 購読中のクライアント
+  private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+  // 統計を配信し直す所有者（連続した書き込みは次の配信でまとめる）
+  private final Set<Long> dirtyStats = ConcurrentHashMap.newKeySet();
+
+  public SongEventBroadcaster(ObjectMapper objectMapper, StatsService statsService,
+      @Value("${app.events.buffer-size:256}") int bufferSize,
+      @Value("${app.events.timeout-ms:1800000}") long timeoutMillis) {
+    this.objectMapper = objectMapper;
+    this.statsService = statsService;
+    this.bufferSize = bufferSize;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  // ownerId のユーザーの変更を購読する（タイムアウトしたらクライアントが再接続する）
+  public SseEmitter subscribe(Long ownerId) {
+    long key = key(ownerId);
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(key, emitter, new ArrayBlockingQueue<>(bufferSize));
+    subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    emitter.onCompletion(() -> unsubscribe(subscriber));
+    emitter.onTimeout(() -> unsubscribe(subscriber));
+    emitter.onError(e -> unsubscribe(subscriber));
+    subscriber.sender = Thread.ofVirtual().name("sse-sender").start(subscriber::drain);
+
+    // 接続直後に現在の統計を送る
+    subscriber.offer(statsEvent(ownerId));
+    return emitter;
+  }
+
+  private void unsubscribe(Subscriber subscriber) {
+    Set<Subscriber> set = subscribers.get(subscriber.owner);
+    if (set != null) {
+      set.remove(subscriber);
+      if (set.isEmpty()) {
+        subscribers.remove(subscriber.owner, set);
+      }
+    }
+    if (subscriber.sender != null) {
+      subscriber.sender.interrupt();
+    }
+  }
+
+  public int size() {
+    return subscribers.values().stream().mapToInt(Set::size).sum();
+  }
+
+  // 曲の変更をコミット後に配信
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSongChanged(SongChangedEvent event) {
+    if (event.before() != null) {
+      Long owner = event.before().ownerId();
+      if (event.song() == null || !Objects.equals(owner, event.song().getOwnerId())) {
+        broadcast(owner, () -> songEvent("deleted", event.songId(), null));
+      }
+    }
+    if (event.song() != null) {
+      broadcast(event.song().getOwnerId(),
+          () -> songEvent(event.before() == null ? "created" : "updated", event.songId(), SongResponse.from(event.song())));
+    }
+  }
+
+  // 購読者がいるときだけ送信内容を組み立てて積む
+  private void broadcast(Long ownerId, Supplier<Set<DataWithMediaType>> event) {
+    long key = key(ownerId);
+    Set<Subscriber> set = subscribers.get(key);
+    if (set == null || set.isEmpty()) {
+      return;
+    }
+    dirtyStats.add(key);
+    Set<DataWithMediaType> data = event.get();
+    for (Subscriber subscriber : set) {
+      subscriber.offer(data);
+    }
+  }
+
+  // 書き込みがあった所有者の統計をまとめて配信
+  @Scheduled(fixedDelayString = "${app.events.stats-interval-ms:1000}")
+  public void flushStats() {
+    for (Long key : dirtyStats) {
+      dirtyStats.remove(key);
+      Set<Subscriber> set = subscribers.get(key);
+      if (set != null && !set.isEmpty()) {
+        Set<DataWithMediaType> data = statsEvent(key == SHARED ? null : key);
+        set.forEach(subscriber -> subscriber.offer(data));
+      }
+    }
+  }
+
+  // 切断を検知するために定期的にコメント行を送る
+  @Scheduled(fixedDelayString = "${app.events.heartbeat-interval-ms:15000}")
+  public void heartbeat() {
+    Set<DataWithMediaType> data = Collections.unmodifiableSet(SseEmitter.event().comment("ping").build());
+    subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.offer(data)));
+  }
+
+  private Set<DataWithMediaType> songEvent(String type, Long songId, SongResponse song) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("type", type);
+    body.put("id", songId);
+    body.put("song", song);
+    return event("song", body);
+  }
+
+  private Set<DataWithMediaType> statsEvent(Long ownerId) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("categories", statsService.getSongCountByCategory(ownerId));
+    body.put("artists", statsService.getTopArtists(ownerId, STATS_ARTIST_LIMIT));
+    body.put("averageScore", statsService.getAverageScore(ownerId));
+    return event("stats", body);
+  }
+
+  // 1回だけ JSON にして、全クライアントで同じ送信内容を使う
+  private Set<DataWithMediaType> event(String name, Object body) {
+    try {
+      return Collections.unmodifiableSet(SseEmitter.event().name(name)
+          .data(objectMapper.writeValueAsString(body), MediaType.APPLICATION_JSON).build());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static long key(Long ownerId) {
+    return ownerId == null ? SHARED : ownerId;
+  }
+
+  private final class Subscriber {
+    final long owner;
+    final SseEmitter emitter;
+    final BlockingQueue<Set<DataWithMediaType>> queue;
+    volatile Thread sender;
+
+    Subscriber(long owner, SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> queue) {
+      this.owner = owner;
+      this.emitter = emitter;
+      this.queue = queue;
+    }
+
+    // キューがあふれたら受信が追いついていないとみなして切断する
+    void offer(Set<DataWithMediaType> data) {
+      if (!queue.offer(data)) {
+        log.debug("SSE の送信が追いつかないクライアントを切断します: owner={}", owner);
+        unsubscribe(this);
+        emitter.complete();
+      }
+    }
+
+    void drain() {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          emitter.send(queue.take());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException | IllegalStateException e) {
+        // 切断済み
+        unsubscribe(this);
+      }
+    }
+  }
+}
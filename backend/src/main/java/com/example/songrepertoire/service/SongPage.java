@@ -0,0 +1,9 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+
+import java.util.List;
+
+// キーセットページングの1ページ分（nextCursor が null なら最終ページ）
+public record SongPage(List<Song> songs, String nextCursor) {
+}
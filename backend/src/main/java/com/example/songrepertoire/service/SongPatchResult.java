@@ -0,0 +1,15 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+
+// 一括更新の1曲分の結果（song は更新後の曲。見つからない・不正なときは null で error に理由）
+public record SongPatchResult(Long id, Status status, String error, Song song) {
+
+  public enum Status {
+    UPDATED, UNCHANGED, NOT_FOUND, INVALID
+  }
+
+  static SongPatchResult failed(Long id, Status status, String error) {
+    return new SongPatchResult(id, status, error, null);
+  }
+}
@@ -0,0 +1,388 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.util.TextNormalizer;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 曲名・アーティスト・メモ・タグの転置インデックス（文字 bigram、かな/ローマ字の両表記で登録）
+// LIKE '%x%' の全件走査をせずに部分一致検索できるようにする。インデックスは曲の所有者ごとに分ける
+@Component
+public class SongSearchIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(SongSearchIndex.class);
+
+  // フィールドのビットと重み（どのフィールドで一致したかをビットで持ち、最も重いものでスコアを付ける）
+  private static final int TITLE = 1;
+  private static final int ARTIST = 2;
+  private static final int TAG = 4;
+  private static final int MEMO = 8;
+
+  // 所有者なし（共有レパートリー）の曲のキー
+  private static final long SHARED = 0L;
+
+  private final SongService songService;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // 所有者 → gram → 曲 ID の昇順リスト（前方一致で1文字検索にも使うので TreeMap）
+  private final Map<Long, TreeMap<String, Postings>> postingsByOwner = new HashMap<>();
+  // 曲 ID → 所有者と登録した gram（更新・削除時に postings から外すため）
+  private final Map<Long, Document> documents = new HashMap<>();
+  // 構築中に変更イベントで反映した曲の ID（構築が終わったら null）
+  // 構築で先に読んだ古い内容で、更新を戻したり削除した曲を復活させたりしない
+  private volatile Set<Long> changedDuringRebuild = new HashSet<>();
+  private volatile boolean ready;
+
+  public SongSearchIndex(SongService songService) {
+    this.songService = songService;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  // 起動時に DB の全曲から構築する（構築中も変更イベントは反映し、完了するまで検索は受け付けない）
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Thread.ofVirtual().name("song-search-rebuild").start(() -> {
+      long start = System.currentTimeMillis();
+      songService.forEachSong(songs -> songs.forEach(this::restore));
+      lock.writeLock().lock();
+      try {
+        changedDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      ready = true;
+      log.info("検索インデックスを構築しました: {} 曲, {} ms", size(), System.currentTimeMillis() - start);
+    });
+  }
+
+  // 曲の変更をコミット後に反映
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSongChanged(SongChangedEvent event) {
+    markChanged(event.songId());
+    if (event.song() == null) {
+      remove(event.songId());
+    } else {
+      index(event.song());
+    }
+  }
+
+  private void markChanged(Long songId) {
+    if (changedDuringRebuild == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (changedDuringRebuild != null) {
+        changedDuringRebuild.add(songId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 構築で読んだ曲を登録（構築中に変更イベントが届いた曲は、イベントの内容のままにする）
+  private void restore(Song song) {
+    lock.writeLock().lock();
+    try {
+      if (!changedDuringRebuild.contains(song.getId())) {
+        index(song);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 曲を登録（すでにあれば置き換える）
+  public void index(Song song) {
+    Map<String, Integer> fields = new HashMap<>();
+    Texts texts = new Texts();
+    addField(fields, texts, song.getTitle(), TITLE);
+    addField(fields, texts, song.getArtist(), ARTIST);
+    addField(fields, texts, song.getMemo(), MEMO);
+    String[] tags = tagNames(song);
+
+    lock.writeLock().lock();
+    try {
+      if (tags == null) {
+        // タグを読み込んでいない曲は、登録済みのタグをそのまま使う（タグのない曲として登録し直さない）
+        Document previous = documents.get(song.getId());
+        tags = previous != null ? previous.tags() : new String[0];
+      }
+      for (String tag : tags) {
+        addField(fields, texts, tag, TAG);
+      }
+      removeLocked(song.getId());
+      long owner = key(song.getOwnerId());
+      TreeMap<String, Postings> postings = postingsByOwner.computeIfAbsent(owner, o -> new TreeMap<>());
+      String[] grams = fields.keySet().toArray(new String[0]);
+      for (String gram : grams) {
+        postings.computeIfAbsent(gram, g -> new Postings()).add(song.getId(), fields.get(gram).byteValue());
+      }
+      documents.put(song.getId(), new Document(owner, grams, tags, texts.forms(), texts.fields()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // タグ名（タグのコレクションを読み込んでいなければ null）
+  private static String[] tagNames(Song song) {
+    if (song.getTags() == null) {
+      return new String[0];
+    }
+    if (!Hibernate.isInitialized(song.getTags())) {
+      return null;
+    }
+    return song.getTags().stream().map(Tag::getName).toArray(String[]::new);
+  }
+
+  private void addField(Map<String, Integer> fields, Texts texts, String text, int field) {
+    for (String form : TextNormalizer.searchForms(text)) {
+      texts.add(form, field);
+      for (String gram : TextNormalizer.searchGrams(form)) {
+        fields.merge(gram, field, (a, b) -> a | b);
+      }
+    }
+  }
+
+  // 曲を削除
+  public void remove(Long songId) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(songId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeLocked(Long songId) {
+    Document document = documents.remove(songId);
+    if (document == null) {
+      return;
+    }
+    TreeMap<String, Postings> postings = postingsByOwner.get(document.owner());
+    for (String gram : document.grams()) {
+      Postings list = postings.get(gram);
+      if (list != null && list.remove(songId) && list.size == 0) {
+        postings.remove(gram);
+      }
+    }
+    if (postings.isEmpty()) {
+      postingsByOwner.remove(document.owner());
+    }
+  }
+
+  private static long key(Long ownerId) {
+    return ownerId == null ? SHARED : ownerId;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // ownerId のユーザーの曲を検索してスコア順（同点なら新しい曲順）に offset から limit 件の曲 ID を返す
+  public SearchHits search(Long ownerId, String query, int offset, int limit) {
+    String normalized = TextNormalizer.normalize(query);
+    if (normalized.isEmpty()) {
+      return new SearchHits(List.of(), 0);
+    }
+    lock.readLock().lock();
+    try {
+      TreeMap<String, Postings> postings = postingsByOwner.get(key(ownerId));
+      if (postings == null) {
+        return new SearchHits(List.of(), 0);
+      }
+      // かなで入力された場合はローマ字表記（長音の書き方の両方）でも探し、どれかで一致すればヒットとする
+      Map<Long, Integer> scores = match(postings, normalized);
+      for (String romaji : TextNormalizer.romajiSpellings(normalized)) {
+        match(postings, romaji).forEach((id, score) -> scores.merge(id, score, Math::max));
+      }
+      return rank(scores, offset, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // すべての gram を含む曲とそのスコア
+  private Map<Long, Integer> match(TreeMap<String, Postings> postings, String text) {
+    Map<Long, Integer> scores = new HashMap<>();
+    if (text.length() == 1) {
+      // 1文字はその文字で始まる gram（末尾の文字は1文字の gram）のどれかを含む曲を探す
+      for (Postings list : postings.subMap(text, text + Character.MAX_VALUE).values()) {
+        for (int i = 0; i < list.size; i++) {
+          scores.merge(list.ids[i], weight(list.fields[i]), Math::max);
+        }
+      }
+      return scores;
+    }
+
+    List<Postings> lists = new ArrayList<>();
+    for (String gram : TextNormalizer.ngrams(text, 2)) {
+      Postings list = postings.get(gram);
+      if (list == null) {
+        return scores;
+      }
+      lists.add(list);
+    }
+
+    // 短いリストから順に突き合わせる
+    lists.sort(Comparator.comparingInt(p -> p.size));
+    Postings first = lists.get(0);
+    for (int i = 0; i < first.size; i++) {
+      long id = first.ids[i];
+      // すべての gram が同じフィールドに含まれる曲だけをヒットとする
+      int common = first.fields[i];
+      for (int j = 1; j < lists.size() && common != 0; j++) {
+        common &= lists.get(j).fieldsOf(id);
+      }
+      // gram は位置を持たないので、順番どおりに並んでいるか（部分文字列か）をフィールドの文字列で確かめる
+      if (common != 0 && lists.size() > 1) {
+        common = documents.get(id).fieldsContaining(text, common);
+      }
+      if (common == 0) {
+        continue;
+      }
+      scores.put(id, weight(common) * lists.size());
+    }
+    return scores;
+  }
+
+  private static int weight(int fields) {
+    if ((fields & TITLE) != 0) {
+      return 8;
+    }
+    if ((fields & ARTIST) != 0) {
+      return 4;
+    }
+    if ((fields & TAG) != 0) {
+      return 2;
+    }
+    return 1;
+  }
+
+  // 上位 offset + limit 件だけをヒープで選んで並べる
+  private SearchHits rank(Map<Long, Integer> scores, int offset, int limit) {
+    Comparator<Map.Entry<Long, Integer>> order = Map.Entry.<Long, Integer>comparingByValue().reversed()
+        .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed());
+    int k = offset + limit;
+    PriorityQueue<Map.Entry<Long, Integer>> heap = new PriorityQueue<>(Math.max(1, k + 1), order.reversed());
+    for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+      heap.offer(entry);
+      if (heap.size() > k) {
+        heap.poll();
+      }
+    }
+    List<Map.Entry<Long, Integer>> top = new ArrayList<>(heap);
+    top.sort(order);
+    List<Long> ids = top.stream().skip(offset).map(Map.Entry::getKey).toList();
+    return new SearchHits(ids, scores.size());
+  }
+
+  // 検索結果（該当する曲 ID のページと総件数）
+  public record SearchHits(List<Long> ids, int total) {
+  }
+
+  // forms は各フィールドの検索用の表記、formFields はそれぞれのフィールドのビット
+  private record Document(long owner, String[] grams, String[] tags, String[] forms, byte[] formFields) {
+
+    // candidates のうち text を部分文字列として含むフィールドのビット
+    int fieldsContaining(String text, int candidates) {
+      int found = 0;
+      for (int i = 0; i < forms.length; i++) {
+        if ((formFields[i] & candidates & ~found) != 0 && forms[i].contains(text)) {
+          found |= formFields[i];
+        }
+      }
+      return found;
+    }
+  }
+
+  // 登録中の曲の検索用の表記
+  private static final class Texts {
+    private final List<String> forms = new ArrayList<>();
+    private final List<Byte> fields = new ArrayList<>();
+
+    void add(String form, int field) {
+      forms.add(form);
+      fields.add((byte) field);
+    }
+
+    String[] forms() {
+      return forms.toArray(new String[0]);
+    }
+
+    byte[] fields() {
+      byte[] result = new byte[fields.size()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = fields.get(i);
+      }
+      return result;
+    }
+  }
+
+  // 曲 ID の昇順配列とそれぞれの一致フィールド
+  private static final class Postings {
+    long[] ids = new long[4];
+    byte[] fields = new byte[4];
+    int size;
+
+    void add(long id, byte field) {
+      int pos = Arrays.binarySearch(ids, 0, size, id);
+      if (pos >= 0) {
+        fields[pos] |= field;
+        return;
+      }
+      pos = -pos - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        fields = Arrays.copyOf(fields, size * 2);
+      }
+      System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+      System.arraycopy(fields, pos, fields, pos + 1, size - pos);
+      ids[pos] = id;
+      fields[pos] = field;
+      size++;
+    }
+
+    boolean remove(long id) {
+      int pos = Arrays.binarySearch(ids, 0, size, id);
+      if (pos < 0) {
+        return false;
+      }
+      System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+      System.arraycopy(fields, pos + 1, fields, pos, size - pos - 1);
+      size--;
+      return true;
+    }
+
+    int fieldsOf(long id) {
+      int pos = Arrays.binarySearch(ids, 0, size, id);
+      return pos >= 0 ? fields[pos] : 0;
+    }
+  }
+}
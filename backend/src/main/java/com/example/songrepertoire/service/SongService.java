@@ -1,58 +1,491 @@
 package com.example.songrepertoire.service;
 
+import com.example.songrepertoire.controller.dto.SongPatchRequest;
+import com.example.songrepertoire.controller.dto.SongRequest;
 import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.SongSnapshot;
 import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.model.User;
+import com.example.songrepertoire.repository.SongFilter;
 import com.example.songrepertoire.repository.SongRepository;
+import com.example.songrepertoire.repository.SongSpecifications;
 import com.example.songrepertoire.repository.TagRepository;
 
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class SongService {
 
+  // 1ページあたりの最大件数
+  public static final int MAX_PAGE_SIZE = 100;
+  // 一括更新で一度に指定できる最大件数
+  public static final int MAX_BATCH_SIZE = 500;
+
   private final SongRepository songRepository;
   private final TagRepository tagRepository;
+  private final TagCache tagCache;
+  private final JacketStorage jacketStorage;
+  private final ApplicationEventPublisher eventPublisher;
+  private final EntityManager entityManager;
+  private final TransactionTemplate readOnlyTemplate;
+  private final TransactionTemplate tagCreationTemplate;
+  private final ReentrantLock tagCreationLock = new ReentrantLock();
 
-  public SongService(SongRepository songRepository, TagRepository tagRepository) {
+  public SongService(SongRepository songRepository, TagRepository tagRepository, TagCache tagCache,
+      JacketStorage jacketStorage, ApplicationEventPublisher eventPublisher, EntityManager entityManager,
+      PlatformTransactionManager transactionManager) {
     this.songRepository = songRepository;
     this.tagRepository = tagRepository;
+    this.tagCache = tagCache;
+    this.jacketStorage = jacketStorage;
+    this.eventPublisher = eventPublisher;
+    this.entityManager = entityManager;
+    this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+    this.readOnlyTemplate.setReadOnly(true);
+    this.tagCreationTemplate = new TransactionTemplate(transactionManager);
+    this.tagCreationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
   }
 
+  // 以下、ownerId を受け取るメソッドはそのユーザーの曲だけを対象にする
+  // （ownerId が null なら所有者なしの共有レパートリー）
+
   // 全ての曲を取得
-  public List<Song> findAll() {
-    return songRepository.findAll();
+  public List<Song> findAll(Long ownerId) {
+    return songRepository.findAll(SongSpecifications.ownedBy(ownerId));
+  }
+
+  // 絞り込み条件付きでキーセットページング取得
+  // sort が "updatedAt" の場合は更新日時の降順、それ以外は id の昇順
+  // cursor は前ページの nextCursor をそのまま渡す（最初のページは null）
+  public SongPage findPage(Long ownerId, SongFilter filter, String sort, String cursor, int limit) {
+    return findPage(SongSpecifications.ownedBy(ownerId).and(SongSpecifications.matches(filter)), sort, cursor, limit);
+  }
+
+  private SongPage findPage(Specification<Song> base, String sort, String cursor, int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    boolean byUpdatedAt = "updatedAt".equals(sort);
+    Specification<Song> spec = base;
+    Sort order;
+    if (byUpdatedAt) {
+      order = Sort.by(Sort.Direction.DESC, "updatedAt", "id");
+      if (cursor != null) {
+        int sep = cursor.lastIndexOf('_');
+        if (sep < 0) {
+          throw invalidCursor(cursor);
+        }
+        spec = spec.and(SongSpecifications.updatedBefore(parseTime(cursor.substring(0, sep)), parseId(cursor.substring(sep + 1))));
+      }
+    } else {
+      order = Sort.by(Sort.Direction.ASC, "id");
+      if (cursor != null) {
+        spec = spec.and(SongSpecifications.idAfter(parseId(cursor)));
+      }
+    }
+
+    // 1件多く取得して次ページの有無を判定する（COUNT クエリは発行しない）
+    List<Song> songs = songRepository.findBy(spec, q -> q.sortBy(order).limit(size + 1).all());
+    String nextCursor = null;
+    if (songs.size() > size) {
+      songs = songs.subList(0, size);
+      Song last = songs.get(size - 1);
+      nextCursor = byUpdatedAt ? last.getUpdatedAt() + "_" + last.getId() : String.valueOf(last.getId());
+    }
+    return new SongPage(songs, nextCursor);
+  }
+
+  private Long parseId(String value) {
+    try {
+      return Long.valueOf(value);
+    } catch (NumberFormatException e) {
+      throw invalidCursor(value);
+    }
+  }
+
+  private LocalDateTime parseTime(String value) {
+    try {
+      return LocalDateTime.parse(value);
+    } catch (DateTimeParseException e) {
+      throw invalidCursor(value);
+    }
+  }
+
+  private ResponseStatusException invalidCursor(String cursor) {
+    return new ResponseStatusException(HttpStatus.BAD_REQUEST, "不正なカーソルです: " + cursor);
   }
 
-  // 指定したIDの曲を取得
-  public Optional<Song> findById(Long id) {
-    return songRepository.findById(id);
+  // 指定した ID の曲を ID の並び順どおりに取得（存在しない ID は除く）
+  public List<Song> findAllByIdsInOrder(List<Long> ids) {
+    Map<Long, Song> byId = new HashMap<>();
+    songRepository.findAllById(ids).forEach(song -> byId.put(song.getId(), song));
+    List<Song> songs = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      Song song = byId.get(id);
+      if (song != null) {
+        songs.add(song);
+      }
+    }
+    return songs;
+  }
+
+  // 条件に合う全曲をページ単位で読み込む（ページごとに読み取り専用トランザクション内で consumer を呼ぶ）
+  // 処理したページは永続化コンテキストから外すので、件数が増えてもメモリ使用量は変わらない
+  // 全件走査で2次キャッシュを入れ替えてしまわないよう、キャッシュは読むだけにする
+  public void forEachPage(Long ownerId, SongFilter filter, Consumer<List<Song>> consumer) {
+    forEachPage(SongSpecifications.ownedBy(ownerId).and(SongSpecifications.matches(filter)), consumer);
+  }
+
+  // 全ユーザーの全曲をページ単位で読み込む（メモリ上の索引の構築用）
+  // 索引は読み込み済みのタグしか見ないので、渡す前にページの曲のタグをまとめて読む（@BatchSize で1クエリ）
+  public void forEachSong(Consumer<List<Song>> consumer) {
+    forEachPage(SongSpecifications.matches(new SongFilter()), songs -> {
+      songs.forEach(song -> Hibernate.initialize(song.getTags()));
+      consumer.accept(songs);
+    });
+  }
+
+  private void forEachPage(Specification<Song> spec, Consumer<List<Song>> consumer) {
+    String cursor = null;
+    do {
+      String current = cursor;
+      cursor = readOnlyTemplate.execute(status -> {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+        SongPage page = findPage(spec, "id", current, MAX_PAGE_SIZE);
+        consumer.accept(page.songs());
+        return page.nextCursor();
+      });
+      entityManager.clear();
+    } while (cursor != null);
+  }
+
+  // ownerId のユーザーの全曲を id 順のページ（keyset）ごとに読み、タグを付けて consumer に渡す
+  // 接続を使うのはページを読む間だけで、consumer（応答への書き出し）はトランザクションの外で呼ぶ
+  // 遅いクライアントへの書き出しを待つ間に接続プールを使い切らない（ページの間に書き込まれた変更は次のページから見える）
+  public void streamAll(Long ownerId, Consumer<List<Song>> consumer) {
+    Specification<Song> spec = SongSpecifications.ownedBy(ownerId).and(SongSpecifications.matches(new SongFilter()));
+    String cursor = null;
+    do {
+      String current = cursor;
+      SongPage page = readOnlyTemplate.execute(status -> {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+        SongPage read = findPage(spec, "id", current, MAX_PAGE_SIZE);
+        // ページの曲のタグをまとめて読む（@BatchSize で1クエリ）。切り離した後も読めるようにしておく
+        read.songs().forEach(song -> Hibernate.initialize(song.getTags()));
+        return read;
+      });
+      entityManager.clear();
+      consumer.accept(page.songs());
+      cursor = page.nextCursor();
+    } while (cursor != null);
+  }
+
+  // 指定したIDの曲を取得（主キーで引いてから所有者を確かめる）
+  public Optional<Song> findById(Long ownerId, Long id) {
+    return songRepository.findById(id).filter(song -> Objects.equals(song.getOwnerId(), ownerId));
   }
 
   // タグ付きで曲を保存
+  @Transactional
   public Song saveWithTags(Song song, List<Long> tagIds) {
-    List<Tag> tags = tagRepository.findAllById(tagIds);
-    song.setTags(tags);
-    return songRepository.save(song);
+    song.setTags(findTagsByIds(song.getOwnerId(), tagIds));
+    return save(song);
   }
 
   // タグ付きで曲を更新　→　不要により削除(saveメソッドで対応可能)
 
   // 指定したIDの曲を削除
-  public void deleteById(Long id) {
-    songRepository.deleteById(id);
+  @Transactional
+  public void deleteById(Long ownerId, Long id) {
+    findById(ownerId, id).ifPresent(song -> {
+      songRepository.delete(song);
+      eventPublisher.publishEvent(new SongChangedEvent(id, song.getLoadedState(), null));
+    });
   }
 
   // 通常の保存（タグ操作なし）
+  @Transactional
   public Song save(Song song) {
-    return songRepository.save(song);
+    SongSnapshot before = song.getLoadedState();
+    Song saved = songRepository.save(song);
+    // コミット後のリスナー（検索・ランダム選曲の索引）はセッションの外でタグを見るので、未読み込みならここで読む
+    Hibernate.initialize(saved.getTags());
+    eventPublisher.publishEvent(new SongChangedEvent(saved.getId(), before, saved));
+    return saved;
   }
 
- // タグIDのリストからタグを取得
-  public List<Tag> findTagsByIds(List<Long> tagIds) {
-  return tagRepository.findAllById(tagIds);
-}
+  // リクエストの内容を Song に反映（新規の曲は ownerId のユーザーの曲として登録する）
+  public void applyRequest(Long ownerId, SongRequest request, Song song) {
+    if (song.getId() == null) {
+      song.setOwner(ownerReference(ownerId));
+    }
+    song.setTitle(request.getTitle());
+    song.setArtist(request.getArtist());
+    song.setKeyAdjustment(request.getKey());
+    song.setScore(request.getScore());
+    song.setCategory(request.getCategory());
+    song.setMachine(request.getMachine());
+    song.setIsFavorite(request.getIsFavorite());
+    song.setJacket(jacketStorage.normalize(request.getJacket()));
+    song.setMemo(request.getMemo());
 
+    // tagIds と tagNames のどちらか（または両方）が指定されたときだけタグを置き換える
+    if (request.getTagIds() != null || request.getTagNames() != null) {
+      List<Tag> tags = new ArrayList<>();
+      if (request.getTagIds() != null) {
+        tags.addAll(findTagsByIds(ownerId, request.getTagIds()));
+      }
+      if (request.getTagNames() != null) {
+        for (Tag tag : resolveTagsByName(ownerId, request.getTagNames())) {
+          if (tags.stream().noneMatch(t -> t.getId().equals(tag.getId()))) {
+            tags.add(tag);
+          }
+        }
+      }
+      song.setTags(tags);
+    }
+  }
+
+  // 複数曲の部分更新を1トランザクションで反映する
+  // 曲は1クエリ、追加するタグはまとめて解決し、UPDATE はコミット時に JDBC バッチで送る
+  // 見つからない・不正な曲は飛ばして残りを更新し、リクエストと同じ順で1曲ごとの結果を返す
+  @Transactional
+  public List<SongPatchResult> patchAll(Long ownerId, List<SongPatchRequest> patches) {
+    if (patches.size() > MAX_BATCH_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "一度に更新できるのは " + MAX_BATCH_SIZE + " 曲までです");
+    }
+    Set<Long> ids = new HashSet<>();
+    Set<Long> tagIds = new LinkedHashSet<>();
+    Set<String> tagNames = new LinkedHashSet<>();
+    for (SongPatchRequest patch : patches) {
+      if (patch.getId() != null) {
+        ids.add(patch.getId());
+      }
+      if (patch.getAddTagIds() != null) {
+        tagIds.addAll(patch.getAddTagIds());
+      }
+      if (patch.getAddTagNames() != null) {
+        tagNames.addAll(patch.getAddTagNames());
+      }
+    }
+    Map<Long, Song> songs = new HashMap<>();
+    songRepository.findAllById(ids).forEach(song -> {
+      if (Objects.equals(song.getOwnerId(), ownerId)) {
+        songs.put(song.getId(), song);
+      }
+    });
+    // ここでキャッシュに載せておけば、曲ごとのタグの解決は DB を引かない
+    findTagsByIds(ownerId, new ArrayList<>(tagIds));
+    resolveTagsByName(ownerId, new ArrayList<>(tagNames));
+
+    List<SongPatchResult> results = new ArrayList<>(patches.size());
+    Set<Long> seen = new HashSet<>();
+    for (SongPatchRequest patch : patches) {
+      Long id = patch.getId();
+      Song song = id == null ? null : songs.get(id);
+      if (song == null) {
+        results.add(SongPatchResult.failed(id, SongPatchResult.Status.NOT_FOUND, "曲が見つかりません"));
+      } else if (!seen.add(id)) {
+        // 同じ曲への2回目の変更は、変更前の状態（集計の差分計算に使う）が合わなくなるので受け付けない
+        results.add(SongPatchResult.failed(id, SongPatchResult.Status.INVALID, "同じ曲が重複しています"));
+      } else if (isBlankIfPresent(patch.getTitle())) {
+        results.add(SongPatchResult.failed(id, SongPatchResult.Status.INVALID, "title は空にできません"));
+      } else if (isBlankIfPresent(patch.getArtist())) {
+        results.add(SongPatchResult.failed(id, SongPatchResult.Status.INVALID, "artist は空にできません"));
+      } else if (applyPatch(ownerId, patch, song)) {
+        results.add(new SongPatchResult(id, SongPatchResult.Status.UPDATED, null, save(song)));
+      } else {
+        results.add(new SongPatchResult(id, SongPatchResult.Status.UNCHANGED, null, song));
+      }
+    }
+    return results;
+  }
+
+  private static boolean isBlankIfPresent(String value) {
+    return value != null && value.isBlank();
+  }
+
+  // 指定された項目だけを反映し、変更があったかを返す（タグは変わったときだけ置き換える）
+  private boolean applyPatch(Long ownerId, SongPatchRequest patch, Song song) {
+    boolean changed = false;
+    changed |= update(patch.getTitle(), song::getTitle, song::setTitle);
+    changed |= update(patch.getArtist(), song::getArtist, song::setArtist);
+    changed |= update(patch.getKey(), song::getKeyAdjustment, song::setKeyAdjustment);
+    changed |= update(patch.getScore(), song::getScore, song::setScore);
+    changed |= update(patch.getCategory(), song::getCategory, song::setCategory);
+    changed |= update(patch.getMachine(), song::getMachine, song::setMachine);
+    changed |= update(patch.getIsFavorite(), song::getIsFavorite, song::setIsFavorite);
+    changed |= update(patch.getJacket() == null ? null : jacketStorage.normalize(patch.getJacket()), song::getJacket, song::setJacket);
+    changed |= update(patch.getMemo(), song::getMemo, song::setMemo);
+
+    if (patch.getAddTagIds() == null && patch.getAddTagNames() == null
+        && patch.getRemoveTagIds() == null && patch.getRemoveTagNames() == null) {
+      return changed;
+    }
+    List<Tag> current = song.getTags() == null ? List.of() : song.getTags();
+    List<Tag> tags = new ArrayList<>(current);
+    if (patch.getRemoveTagIds() != null) {
+      Set<Long> removeIds = new HashSet<>(patch.getRemoveTagIds());
+      tags.removeIf(tag -> removeIds.contains(tag.getId()));
+    }
+    if (patch.getRemoveTagNames() != null) {
+      Set<String> removeNames = new HashSet<>();
+      patch.getRemoveTagNames().stream().filter(Objects::nonNull).forEach(name -> removeNames.add(name.trim()));
+      tags.removeIf(tag -> removeNames.contains(tag.getName()));
+    }
+    List<Tag> added = new ArrayList<>();
+    if (patch.getAddTagIds() != null) {
+      added.addAll(findTagsByIds(ownerId, patch.getAddTagIds()));
+    }
+    if (patch.getAddTagNames() != null) {
+      added.addAll(resolveTagsByName(ownerId, patch.getAddTagNames()));
+    }
+    for (Tag tag : added) {
+      if (tags.stream().noneMatch(t -> t.getId().equals(tag.getId()))) {
+        tags.add(tag);
+      }
+    }
+    if (tags.size() == current.size() && tags.equals(current)) {
+      return changed;
+    }
+    song.setTags(tags);
+    return true;
+  }
+
+  private static <T> boolean update(T value, Supplier<T> getter, Consumer<T> setter) {
+    if (value == null || value.equals(getter.get())) {
+      return false;
+    }
+    setter.accept(value);
+    return true;
+  }
+
+  private User ownerReference(Long ownerId) {
+    return ownerId == null ? null : entityManager.getReference(User.class, ownerId);
+  }
+
+  // タグIDのリストからタグを取得（キャッシュにないものだけ DB から取得）
+  public List<Tag> findTagsByIds(Long ownerId, List<Long> tagIds) {
+    List<Long> missing = new ArrayList<>();
+    for (Long id : tagIds) {
+      if (tagCache.getById(id) == null) {
+        missing.add(id);
+      }
+    }
+    if (!missing.isEmpty()) {
+      tagRepository.findAllById(missing).forEach(tagCache::put);
+    }
+
+    // 存在しない ID・他のユーザーのタグは無視し、重複を除いてリクエスト順で返す
+    List<Tag> tags = new ArrayList<>();
+    for (Long id : new LinkedHashSet<>(tagIds)) {
+      Tag tag = tagCache.getById(id);
+      if (tag != null && Objects.equals(tag.getOwnerId(), ownerId)) {
+        tags.add(tag);
+      }
+    }
+    return tags;
+  }
+
+  // タグ名からタグを取得（作成はしない）
+  public Optional<Tag> findTagByName(Long ownerId, String name) {
+    Tag cached = tagCache.getByName(ownerId, name);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    List<Tag> found = tagRepository.findByNameIn(ownerId, List.of(name));
+    found.forEach(tagCache::put);
+    return found.stream().findFirst();
+  }
+
+  // タグ名のリストからタグを取得（未登録の名前はまとめて作成）
+  public List<Tag> resolveTagsByName(Long ownerId, List<String> tagNames) {
+    Set<String> names = new LinkedHashSet<>();
+    for (String name : tagNames) {
+      if (name != null && !name.isBlank()) {
+        names.add(name.trim());
+      }
+    }
+
+    List<String> missing = new ArrayList<>();
+    for (String name : names) {
+      if (tagCache.getByName(ownerId, name) == null) {
+        missing.add(name);
+      }
+    }
+    if (!missing.isEmpty()) {
+      List<Tag> found = tagRepository.findByNameIn(ownerId, missing);
+      found.forEach(tagCache::put);
+      found.forEach(tag -> missing.remove(tag.getName()));
+    }
+    if (!missing.isEmpty()) {
+      createTags(ownerId, missing).forEach(tagCache::put);
+    }
+
+    List<Tag> tags = new ArrayList<>();
+    for (String name : names) {
+      Tag tag = tagCache.getByName(ownerId, name);
+      if (tag != null) {
+        tags.add(tag);
+      }
+    }
+    return tags;
+  }
+
+  // 未登録のタグを呼び出し元とは別のトランザクションで作成してコミットする（キャッシュにはコミット済みのタグだけを載せる）
+  // 作成はプロセス内で直列にし、作成の直前に DB を読み直す（共有タグは user_id が NULL なので一意制約では重複を防げない）
+  // 別のプロセスと同時に作成して一意制約に違反した場合は、作成されたものを読み直す
+  // 呼び出し元がロールバックしてもタグは残るが、どの曲にも付いていないだけなので害はない
+  private List<Tag> createTags(Long ownerId, List<String> names) {
+    tagCreationLock.lock();
+    try {
+      return tagCreationTemplate.execute(status -> {
+        List<Tag> tags = new ArrayList<>(tagRepository.findByNameIn(ownerId, names));
+        Set<String> existing = new HashSet<>();
+        tags.forEach(tag -> existing.add(tag.getName()));
+        List<Tag> created = new ArrayList<>();
+        for (String name : names) {
+          if (!existing.contains(name)) {
+            created.add(new Tag(null, name, ownerReference(ownerId)));
+          }
+        }
+        if (!created.isEmpty()) {
+          tags.addAll(tagRepository.saveAll(created));
+          tagRepository.flush();
+        }
+        return tags;
+      });
+    } catch (DataIntegrityViolationException e) {
+      return tagCreationTemplate.execute(status -> tagRepository.findByNameIn(ownerId, names));
+    } finally {
+      tagCreationLock.unlock();
+    }
+  }
 }
@@ -0,0 +1,358 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.controller.dto.SongRequest;
+import com.example.songrepertoire.controller.dto.SongResponse;
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.repository.SongFilter;
+import com.example.songrepertoire.util.Csv;
+import com.example.songrepertoire.util.TextNormalizer;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// 曲の一括インポート・エクスポート（NDJSON / CSV）
+// どちらも一定件数ずつ処理するので、件数が増えてもメモリ使用量は変わらない
+@Service
+public class SongTransferService {
+
+  // 1トランザクションでまとめて登録する件数
+  public static final int CHUNK_SIZE = 500;
+
+  // CSV の列（tags は "|" 区切りのタグ名）
+  public static final List<String> CSV_COLUMNS =
+      List.of("title", "artist", "key", "score", "category", "machine", "isFavorite", "jacket", "memo", "tags");
+
+  private final SongService songService;
+  private final SongDuplicateIndex songDuplicateIndex;
+  private final JacketStorage jacketStorage;
+  private final ObjectMapper objectMapper;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+
+  public SongTransferService(SongService songService, SongDuplicateIndex songDuplicateIndex, JacketStorage jacketStorage,
+      ObjectMapper objectMapper, EntityManager entityManager, PlatformTransactionManager transactionManager) {
+    this.songService = songService;
+    this.songDuplicateIndex = songDuplicateIndex;
+    this.jacketStorage = jacketStorage;
+    this.objectMapper = objectMapper;
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  // NDJSON（1行1曲、SongRequest と同じ形式）を ownerId のユーザーの曲としてインポート
+  // 重複していそうな行は結果で知らせ、policy に従って登録する・飛ばす・エラーにする
+  public ImportResult importNdjson(Long ownerId, InputStream in, SongDuplicateIndex.Policy policy) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    ImportResult result = new ImportResult();
+    List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+    long lineNo = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNo++;
+      if (line.isBlank()) {
+        continue;
+      }
+      try {
+        chunk.add(new ImportRow(lineNo, objectMapper.readValue(line, SongRequest.class)));
+      } catch (JsonProcessingException e) {
+        result.addError(lineNo, "JSON を解析できません: " + e.getOriginalMessage());
+      }
+      if (chunk.size() >= CHUNK_SIZE) {
+        importChunk(ownerId, chunk, policy, result);
+        chunk.clear();
+      }
+    }
+    importChunk(ownerId, chunk, policy, result);
+    return result;
+  }
+
+  // CSV（1行目はヘッダー、列は CSV_COLUMNS の任意の並び）を ownerId のユーザーの曲としてインポート
+  public ImportResult importCsv(Long ownerId, InputStream in, SongDuplicateIndex.Policy policy) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    ImportResult result = new ImportResult();
+    List<String> header = Csv.readRecord(reader);
+    if (header == null) {
+      return result;
+    }
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      columns.put(header.get(i).trim().replace("\uFEFF", ""), i);
+    }
+
+    List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+    long recordNo = 1;
+    List<String> record;
+    while ((record = Csv.readRecord(reader)) != null) {
+      recordNo++;
+      if (record.size() == 1 && record.get(0).isBlank()) {
+        continue;
+      }
+      try {
+        chunk.add(new ImportRow(recordNo, toRequest(columns, record)));
+      } catch (IllegalArgumentException e) {
+        result.addError(recordNo, e.getMessage());
+      }
+      if (chunk.size() >= CHUNK_SIZE) {
+        importChunk(ownerId, chunk, policy, result);
+        chunk.clear();
+      }
+    }
+    importChunk(ownerId, chunk, policy, result);
+    return result;
+  }
+
+  private SongRequest toRequest(Map<String, Integer> columns, List<String> record) {
+    SongRequest request = new SongRequest();
+    request.setTitle(column(columns, record, "title"));
+    request.setArtist(column(columns, record, "artist"));
+    request.setKey(parseInt(column(columns, record, "key"), "key"));
+    request.setScore(parseInt(column(columns, record, "score"), "score"));
+    request.setCategory(column(columns, record, "category"));
+    request.setMachine(column(columns, record, "machine"));
+    request.setIsFavorite(parseBoolean(column(columns, record, "isFavorite"), "isFavorite"));
+    request.setJacket(column(columns, record, "jacket"));
+    request.setMemo(column(columns, record, "memo"));
+    String tags = column(columns, record, "tags");
+    if (tags != null) {
+      request.setTagNames(Arrays.asList(tags.split("\\|")));
+    }
+    return request;
+  }
+
+  // 列の値（列がない・空文字なら null）
+  private String column(Map<String, Integer> columns, List<String> record, String name) {
+    Integer index = columns.get(name);
+    if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+      return null;
+    }
+    return record.get(index);
+  }
+
+  private Integer parseInt(String value, String name) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " が数値ではありません: " + value);
+    }
+  }
+
+  // true / false（1 / 0 も可、大文字小文字は問わない）。それ以外は取り違えないようにエラーにする
+  private Boolean parseBoolean(String value, String name) {
+    if (value == null) {
+      return null;
+    }
+    return switch (value.trim().toLowerCase(Locale.ROOT)) {
+      case "true", "1" -> Boolean.TRUE;
+      case "false", "0" -> Boolean.FALSE;
+      default -> throw new IllegalArgumentException(name + " が true / false ではありません: " + value);
+    };
+  }
+
+  // 1チャンク分を1トランザクションで登録（失敗したら1行ずつ登録し直して失敗行だけを報告）
+  private void importChunk(Long ownerId, List<ImportRow> rows, SongDuplicateIndex.Policy policy, ImportResult result) {
+    List<ImportRow> checked = new ArrayList<>(rows.size());
+    for (ImportRow row : rows) {
+      SongRequest request = row.request();
+      if (request.getTitle() == null || request.getTitle().isBlank()) {
+        result.addError(row.line(), "title は必須です");
+      } else if (request.getArtist() == null || request.getArtist().isBlank()) {
+        result.addError(row.line(), "artist は必須です");
+      } else {
+        checked.add(row);
+      }
+    }
+    List<ImportRow> valid = filterDuplicates(ownerId, checked, policy, result);
+    if (valid.isEmpty()) {
+      return;
+    }
+
+    // チャンク内のタグをまとめて解決してキャッシュに載せておく（以降の行ごとの解決は DB を引かない）
+    Set<Long> tagIds = new LinkedHashSet<>();
+    Set<String> tagNames = new LinkedHashSet<>();
+    for (ImportRow row : valid) {
+      if (row.request().getTagIds() != null) {
+        tagIds.addAll(row.request().getTagIds());
+      }
+      if (row.request().getTagNames() != null) {
+        tagNames.addAll(row.request().getTagNames());
+      }
+    }
+    songService.findTagsByIds(ownerId, new ArrayList<>(tagIds));
+    songService.resolveTagsByName(ownerId, new ArrayList<>(tagNames));
+
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        valid.forEach(row -> saveRow(ownerId, row));
+        entityManager.flush();
+      });
+      result.addImported(valid.size());
+    } catch (RuntimeException e) {
+      entityManager.clear();
+      for (ImportRow row : valid) {
+        try {
+          transactionTemplate.executeWithoutResult(status -> {
+            saveRow(ownerId, row);
+            entityManager.flush();
+          });
+          result.addImported(1);
+        } catch (RuntimeException rowError) {
+          entityManager.clear();
+          result.addError(row.line(), NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+        }
+      }
+    } finally {
+      entityManager.clear();
+    }
+  }
+
+  // 既存の曲（前のチャンクで登録した曲を含む）・チャンク内の前の行と重複していそうな行を報告し、policy に従って残す
+  private List<ImportRow> filterDuplicates(Long ownerId, List<ImportRow> rows, SongDuplicateIndex.Policy policy,
+      ImportResult result) {
+    List<ImportRow> kept = new ArrayList<>(rows.size());
+    Map<String, Long> lineByKey = new HashMap<>();
+    for (ImportRow row : rows) {
+      SongRequest request = row.request();
+      List<Long> songIds = songDuplicateIndex.findSimilar(ownerId, request.getTitle(), request.getArtist(), null).stream()
+          .map(SongDuplicateIndex.Match::id)
+          .toList();
+      String key = TextNormalizer.duplicateKey(request.getTitle()) + "\u0000" + TextNormalizer.duplicateKey(request.getArtist());
+      Long earlierLine = lineByKey.putIfAbsent(key, row.line());
+      if (songIds.isEmpty() && earlierLine == null) {
+        kept.add(row);
+        continue;
+      }
+      result.addDuplicate(row.line(), songIds, earlierLine);
+      switch (policy) {
+        case ALLOW -> kept.add(row);
+        case SKIP -> result.addSkipped();
+        case REJECT -> result.addError(row.line(), "重複していそうな曲があります");
+      }
+    }
+    return kept;
+  }
+
+  private void saveRow(Long ownerId, ImportRow row) {
+    Song song = new Song();
+    songService.applyRequest(ownerId, row.request(), song);
+    songService.save(song);
+  }
+
+  // 一覧（SongResponse の JSON 配列）を読み込んだ順に書き出す
+  // 一覧全体をメモリに載せないので、曲数が増えてもメモリ使用量は変わらない
+  public void writeSongsJson(Long ownerId, OutputStream out) throws IOException {
+    // 1曲ごとではなくまとめて flush する
+    ObjectWriter writer = objectMapper.writerFor(SongResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+    generator.writeStartArray();
+    songService.streamAll(ownerId, songs -> {
+      try {
+        for (Song song : songs) {
+          writer.writeValue(generator, SongResponse.from(song));
+        }
+        generator.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    generator.writeEndArray();
+    generator.close();
+  }
+
+  // NDJSON でエクスポート（importNdjson でそのまま読み込める形式）
+  public void exportNdjson(Long ownerId, SongFilter filter, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    forEachChunk(ownerId, filter, rows -> {
+      try {
+        for (SongRequest row : rows) {
+          row.setJacket(jacketStorage.toDataUri(row.getJacket()));
+          writer.write(objectMapper.writeValueAsString(row));
+          writer.write('\n');
+        }
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    writer.flush();
+  }
+
+  // CSV でエクスポート（importCsv でそのまま読み込める形式）
+  public void exportCsv(Long ownerId, SongFilter filter, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write(Csv.formatRecord(CSV_COLUMNS));
+    forEachChunk(ownerId, filter, rows -> {
+      try {
+        for (SongRequest row : rows) {
+          writer.write(Csv.formatRecord(Arrays.asList(
+              row.getTitle(), row.getArtist(), toString(row.getKey()), toString(row.getScore()),
+              row.getCategory(), row.getMachine(), toString(row.getIsFavorite()), jacketStorage.toDataUri(row.getJacket()), row.getMemo(),
+              row.getTagNames().isEmpty() ? null : String.join("|", row.getTagNames()))));
+        }
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    writer.flush();
+  }
+
+  private static String toString(Object value) {
+    return value == null ? null : value.toString();
+  }
+
+  // 1ページずつ読み込み、タグ込みの行に変換して渡す
+  // 行の jacket は保存値（ハッシュ）のまま。data URI には書き出す直前に1行ずつ変換する（1ページ分の画像を同時に持たない）
+  private void forEachChunk(Long ownerId, SongFilter filter, Consumer<List<SongRequest>> consumer) {
+    songService.forEachPage(ownerId, filter, songs -> consumer.accept(songs.stream().map(this::toRow).toList()));
+  }
+
+  private SongRequest toRow(Song song) {
+    SongRequest row = new SongRequest();
+    row.setTitle(song.getTitle());
+    row.setArtist(song.getArtist());
+    row.setKey(song.getKeyAdjustment());
+    row.setScore(song.getScore());
+    row.setCategory(song.getCategory());
+    row.setMachine(song.getMachine());
+    row.setIsFavorite(song.getIsFavorite());
+    row.setJacket(song.getJacket());
+    row.setMemo(song.getMemo());
+    row.setTagNames(song.getTags() == null ? List.of() : song.getTags().stream().map(Tag::getName).toList());
+    return row;
+  }
+
+  private record ImportRow(long line, SongRequest request) {
+  }
+}
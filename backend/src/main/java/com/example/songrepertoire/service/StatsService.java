@@ -1,43 +1,201 @@
 package com.example.songrepertoire.service;
 
+import com.example.songrepertoire.model.SongSnapshot;
 import com.example.songrepertoire.repository.SongRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class StatsService {
 
+  private static final Logger log = LoggerFactory.getLogger(StatsService.class);
+
+  // アーティスト別ランキングで返す最大件数
+  public static final int MAX_ARTIST_LIMIT = 100;
+
+  // 曲数の降順、同数ならアーティスト名の昇順
+  private static final Comparator<Map.Entry<String, Long>> ARTIST_RANKING =
+      Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+  // 所有者なし（共有レパートリー）の曲を集計するストアのキー
+  private static final long SHARED = 0L;
+
   // コンストラクタインジェクション
   private final SongRepository songRepository;
 
+  // 初回の集計で、集計中の書き込みのために置き換えを見送ってよい回数（超えたら置き換えて、ずれは定期的な再集計で直す）
+  private static final int LOAD_ATTEMPTS = 3;
+
+  // ユーザーごとの統計ストア（統計を一度でも参照したユーザーの分だけ持つ）
+  private final Map<Long, StatsStore> stores = new ConcurrentHashMap<>();
+
+  // 曲の書き込みトランザクションのうち、コミットを始めたものの数と、コミットから統計への反映までの途中にあるものの数
+  // 再集計は、集計クエリの前から置き換えまでどちらも動かなかったときだけ結果を使う
+  // （そのときはコミット済みの変更はすべて反映済みで、まだ反映していない変更は集計にも含まれていない）
+  private final AtomicLong commitsStarted = new AtomicLong();
+  private final AtomicLong commitsInFlight = new AtomicLong();
+
   public StatsService(SongRepository songRepository) {
     this.songRepository = songRepository;
   }
 
   // カテゴリ別の曲数を取得
-  public Map<String, Long> getSongCountByCategory() {
-    List<Object[]> rawData = songRepository.countSongsByCategory();
-    return rawData.stream() // ストリームを作成(rawDataの要素を1つずつ処理 )
-        .collect(Collectors.toMap( // ストリームの要素をMapに変換,
-            row -> (String) row[0], // キーを設定(row[0]はカテゴリ名) ラムダ式という書き方(rowは要素)
-            row -> (Long) row[1])); // 値を設定(row[1]はカテゴリ別の曲数) ラムダ式という書き方(rowは要素)
+  public Map<String, Long> getSongCountByCategory(Long ownerId) {
+    return loadedStore(ownerId).getCategoryCounts();
   }
 
-  // アーティスト別の曲数を取得
-  public Map<String, Long> getSongCountByArtistTop10() {
-    List<Object[]> rawData = songRepository.countSongsByArtist();
-    return rawData.stream()
-        .limit(10)
-        .collect(Collectors.toMap(
-            row -> (String) row[0],
-            row -> (Long) row[1]));
+  // 曲数の多いアーティストを上位 limit 件取得（曲数の降順、同数ならアーティスト名順）
+  public Map<String, Long> getTopArtists(Long ownerId, int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_ARTIST_LIMIT));
+    Map<String, Long> top = new LinkedHashMap<>();
+    StatsStore statsStore = stores.get(key(ownerId));
+    if (statsStore == null || !statsStore.isLoaded()) {
+      // 集計前は DB 側で上位だけを絞り込んで返す
+      songRepository.findTopArtists(ownerId, PageRequest.of(0, size))
+          .forEach(row -> top.put((String) row[0], (Long) row[1]));
+      return top;
+    }
+
+    // 件数 size のヒープで上位を選ぶ（先頭が最も順位の低い要素）
+    PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(size + 1, ARTIST_RANKING.reversed());
+    for (Map.Entry<String, Long> entry : statsStore.getArtistCounts().entrySet()) {
+      heap.offer(entry);
+      if (heap.size() > size) {
+        heap.poll();
+      }
+    }
+    List<Map.Entry<String, Long>> ranked = new ArrayList<>(heap);
+    ranked.sort(ARTIST_RANKING);
+    ranked.forEach(e -> top.put(e.getKey(), e.getValue()));
+    return top;
   }
 
   // スコアの平均値を取得
-  public Double getAverageScore() {
-    return songRepository.findAverageScore();
+  public Double getAverageScore(Long ownerId) {
+    return loadedStore(ownerId).getAverageScore();
+  }
+
+  // 曲の変更をコミット後に所有者の統計ストアへ反映（まだ集計していないユーザーの分は何もしない）
+  @EventListener
+  public void onSongChanged(SongChangedEvent event) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      pending().add(event);
+    } else {
+      commitsStarted.incrementAndGet();
+      apply(event);
+    }
+  }
+
+  // このトランザクションで反映する変更（最初の1件でコミット前後の処理を登録する）
+  @SuppressWarnings("unchecked")
+  private List<SongChangedEvent> pending() {
+    List<SongChangedEvent> events = (List<SongChangedEvent>) TransactionSynchronizationManager.getResource(this);
+    if (events == null) {
+      List<SongChangedEvent> created = new ArrayList<>();
+      TransactionSynchronizationManager.bindResource(this, created);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        private boolean committing;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+          // 途中の数を先に増やす（再集計は始めた数を読んでから途中の数を読む）
+          commitsInFlight.incrementAndGet();
+          commitsStarted.incrementAndGet();
+          committing = true;
+        }
+
+        // 版数の更新・配信（コミット後のリスナー）より先に反映する
+        @Override
+        public void afterCommit() {
+          created.forEach(StatsService.this::apply);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResource(StatsService.this);
+          if (committing) {
+            commitsInFlight.decrementAndGet();
+          }
+        }
+
+        @Override
+        public int getOrder() {
+          return Ordered.HIGHEST_PRECEDENCE;
+        }
+      });
+      events = created;
+    }
+    return events;
+  }
+
+  private void apply(SongChangedEvent event) {
+    SongSnapshot before = event.before();
+    SongSnapshot after = event.after();
+    if (before != null && after != null && !Objects.equals(before.ownerId(), after.ownerId())) {
+      apply(before.ownerId(), before, null);
+      apply(after.ownerId(), null, after);
+    } else {
+      apply((before != null ? before : after).ownerId(), before, after);
+    }
+  }
+
+  private void apply(Long ownerId, SongSnapshot before, SongSnapshot after) {
+    StatsStore statsStore = stores.get(key(ownerId));
+    if (statsStore != null) {
+      statsStore.apply(before, after);
+    }
+  }
+
+  // 定期的に DB から集計し直して差分更新のずれを補正（集計済みのユーザーの分だけ）
+  @Scheduled(fixedDelayString = "${app.stats.reconcile-interval-ms:600000}")
+  public void reconcile() {
+    stores.forEach((key, statsStore) -> {
+      Long ownerId = key == SHARED ? null : key;
+      if (!reconcile(ownerId, statsStore, false)) {
+        log.debug("再集計中に曲の書き込みがコミットされたため統計の置き換えを見送りました: owner={}", ownerId);
+      }
+    });
+  }
+
+  // DB から集計し直した値で置き換える
+  // 集計中に書き込みがコミットされたかもしれないときは、その変更を二重に数えるか取りこぼすので置き換えない（force なら置き換える）
+  private boolean reconcile(Long ownerId, StatsStore statsStore, boolean force) {
+    long started = commitsStarted.get();
+    boolean settled = commitsInFlight.get() == 0;
+    List<Object[]> categories = songRepository.countSongsByCategory(ownerId);
+    List<Object[]> artists = songRepository.countSongsByArtist(ownerId);
+    Object[] scores = songRepository.sumAndCountScores(ownerId);
+    return statsStore.replace(() -> force || (settled && commitsStarted.get() == started), categories, artists,
+        ((Number) scores[0]).longValue(), ((Number) scores[1]).longValue());
+  }
+
+  // まだ集計していないユーザーならその場で集計する
+  private StatsStore loadedStore(Long ownerId) {
+    StatsStore statsStore = stores.computeIfAbsent(key(ownerId), k -> new StatsStore());
+    for (int attempt = 1; !statsStore.isLoaded(); attempt++) {
+      reconcile(ownerId, statsStore, attempt >= LOAD_ATTEMPTS);
+    }
+    return statsStore;
+  }
+
+  private static long key(Long ownerId) {
+    return ownerId == null ? SHARED : ownerId;
   }
 }
@@ -0,0 +1,100 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.SongSnapshot;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+// 1ユーザー分の統計値の集計済みストア（曲の書き込みごとに差分で更新し、読み出しは O(1)）
+public class StatsStore {
+
+  private final Map<String, Long> categoryCounts = new HashMap<>();
+  private final Map<String, Long> artistCounts = new HashMap<>();
+  private long scoreSum;
+  private long scoreCount;
+
+  private boolean loaded;
+
+  // 読み出し用の不変コピー（書き込みがあれば破棄して次の読み出しで作り直す）
+  private Map<String, Long> categoryView;
+  private Map<String, Long> artistView;
+
+  // 曲1件分の変更を反映（before/after のどちらかが null なら登録または削除）
+  public synchronized void apply(SongSnapshot before, SongSnapshot after) {
+    if (before != null) {
+      add(before, -1);
+    }
+    if (after != null) {
+      add(after, 1);
+    }
+  }
+
+  private void add(SongSnapshot song, int delta) {
+    increment(categoryCounts, song.category(), delta);
+    increment(artistCounts, song.artist(), delta);
+    if (song.score() != null) {
+      scoreSum += (long) delta * song.score();
+      scoreCount += delta;
+    }
+    categoryView = null;
+    artistView = null;
+  }
+
+  private static void increment(Map<String, Long> counts, String key, long delta) {
+    if (key == null) {
+      return;
+    }
+    long count = counts.getOrDefault(key, 0L) + delta;
+    if (count > 0) {
+      counts.put(key, count);
+    } else {
+      counts.remove(key);
+    }
+  }
+
+  // DB から集計し直した値で全体を置き換える
+  // upToDate は差分更新と同じロックの中で呼ぶ（集計後の変更が先に反映されていないかを、置き換えと不可分に確かめる）
+  public synchronized boolean replace(BooleanSupplier upToDate, List<Object[]> categoryRows, List<Object[]> artistRows,
+      long newScoreSum, long newScoreCount) {
+    if (!upToDate.getAsBoolean()) {
+      return false;
+    }
+    categoryCounts.clear();
+    artistCounts.clear();
+    categoryRows.forEach(row -> increment(categoryCounts, (String) row[0], (Long) row[1]));
+    artistRows.forEach(row -> increment(artistCounts, (String) row[0], (Long) row[1]));
+    scoreSum = newScoreSum;
+    scoreCount = newScoreCount;
+    categoryView = null;
+    artistView = null;
+    loaded = true;
+    return true;
+  }
+
+  public synchronized boolean isLoaded() {
+    return loaded;
+  }
+
+  // カテゴリ別の曲数
+  public synchronized Map<String, Long> getCategoryCounts() {
+    if (categoryView == null) {
+      categoryView = Map.copyOf(categoryCounts);
+    }
+    return categoryView;
+  }
+
+  // アーティスト別の曲数
+  public synchronized Map<String, Long> getArtistCounts() {
+    if (artistView == null) {
+      artistView = Map.copyOf(artistCounts);
+    }
+    return artistView;
+  }
+
+  // スコアの平均値（スコア登録済みの曲がなければ null）
+  public synchronized Double getAverageScore() {
+    return scoreCount == 0 ? null : (double) scoreSum / scoreCount;
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// タグ辞書のプロセス内キャッシュ（id と 所有ユーザー + name の両方で引ける LRU）
+// タグは件数が少なく更新もまれなので、曲の登録・更新のたびに DB を引かずに済むようにする
+@Component
+public class TagCache {
+
+  private final int maxSize;
+  private final LinkedHashMap<Long, Tag> byId;
+  private final Map<String, Tag> byName = new HashMap<>();
+
+  public TagCache(@Value("${app.tag-cache.max-size:10000}") int maxSize) {
+    this.maxSize = maxSize;
+    this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Tag> eldest) {
+        if (size() > TagCache.this.maxSize) {
+          byName.remove(nameKey(eldest.getValue()));
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  // id で取得（なければ null）
+  public synchronized Tag getById(Long id) {
+    return byId.get(id);
+  }
+
+  // 所有ユーザーと名前で取得（なければ null）
+  public synchronized Tag getByName(Long ownerId, String name) {
+    Tag tag = byName.get(nameKey(ownerId, name));
+    if (tag != null) {
+      byId.get(tag.getId()); // LRU の順序を更新
+    }
+    return tag;
+  }
+
+  // キャッシュに登録（名前が変わっていれば古い名前の索引も消す）
+  public synchronized void put(Tag tag) {
+    if (tag.getId() == null) {
+      return;
+    }
+    Tag old = byId.put(tag.getId(), tag);
+    if (old != null && !nameKey(old).equals(nameKey(tag))) {
+      byName.remove(nameKey(old));
+    }
+    byName.put(nameKey(tag), tag);
+  }
+
+  // 指定したタグを破棄
+  public synchronized void evict(Long id) {
+    Tag old = byId.remove(id);
+    if (old != null) {
+      byName.remove(nameKey(old));
+    }
+  }
+
+  private static String nameKey(Tag tag) {
+    return nameKey(tag.getOwnerId(), tag.getName());
+  }
+
+  private static String nameKey(Long ownerId, String name) {
+    return (ownerId == null ? "" : ownerId.toString()) + '\u0000' + name;
+  }
+
+  public synchronized int size() {
+    return byId.size();
+  }
+
+  // 全件破棄
+  public synchronized void clear() {
+    byId.clear();
+    byName.clear();
+  }
+}
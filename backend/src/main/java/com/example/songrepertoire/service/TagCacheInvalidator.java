@@ -0,0 +1,29 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Tag;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+// Tag エンティティの書き込みを検知して TagCache を更新する JPA リスナー
+@Component
+public class TagCacheInvalidator {
+
+  private final TagCache tagCache;
+
+  public TagCacheInvalidator(TagCache tagCache) {
+    this.tagCache = tagCache;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onWrite(Tag tag) {
+    tagCache.evict(tag.getId());
+  }
+
+  @PostRemove
+  public void onRemove(Tag tag) {
+    tagCache.evict(tag.getId());
+  }
+}
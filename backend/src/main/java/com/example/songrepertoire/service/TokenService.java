@@ -0,0 +1,166 @@
+package com.example.songrepertoire.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// ログイン後に発行する署名付きトークン（HS256 の JWT）の発行と検証
+// サーバー側にセッションを持たず、検証は HMAC の計算だけで済む。検証済みのトークンは期限までキャッシュする
+@Service
+public class TokenService {
+
+  private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final String HEADER = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.US_ASCII));
+
+  private final ObjectMapper objectMapper;
+  private final SecretKeySpec key;
+  private final Duration ttl;
+
+  // 鍵で初期化済みの Mac。署名には複製を使う（リクエストごとに仮想スレッドが変わるので ThreadLocal では使い回せない）
+  private final Mac prototype;
+
+  // 使い終わった Mac（同時に署名・検証しているスレッドの数までしか増えない）
+  private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+  // 検証済みトークン → 内容（上限を超えたらあまり使われていないものから破棄。参照にロックを取らない）
+  private final Cache<String, TokenClaims> verified;
+
+  public TokenService(ObjectMapper objectMapper,
+      @Value("${app.auth.token-secret:}") String secret,
+      @Value("${app.auth.token-ttl:12h}") Duration ttl,
+      @Value("${app.auth.token-cache-size:10000}") int cacheSize) {
+    this.objectMapper = objectMapper;
+    this.key = new SecretKeySpec(secretBytes(secret), ALGORITHM);
+    this.ttl = ttl;
+    this.prototype = newMac();
+    this.verified = Caffeine.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  // 秘密鍵（Base64）。未設定なら起動ごとにランダムに作る（再起動で発行済みトークンは無効になる）
+  private static byte[] secretBytes(String secret) {
+    if (secret == null || secret.isBlank()) {
+      log.warn("app.auth.token-secret が未設定のためランダムな鍵を使います（再起動するとログインし直しになります）");
+      byte[] random = new byte[32];
+      new SecureRandom().nextBytes(random);
+      return random;
+    }
+    byte[] bytes = Base64.getDecoder().decode(secret.trim());
+    if (bytes.length < 32) {
+      throw new IllegalStateException("app.auth.token-secret は 32 バイト以上にしてください");
+    }
+    return bytes;
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // ユーザーのトークンを発行
+  public IssuedToken issue(Long userId) {
+    Instant now = Instant.now();
+    Instant expiresAt = now.plus(ttl);
+    String payload = base64Url(("{\"sub\":\"" + userId + "\",\"iat\":" + now.getEpochSecond()
+        + ",\"exp\":" + expiresAt.getEpochSecond() + "}").getBytes(StandardCharsets.US_ASCII));
+    String signingInput = HEADER + "." + payload;
+    return new IssuedToken(signingInput + "." + base64Url(sign(signingInput)), expiresAt);
+  }
+
+  // トークンを検証して内容を返す（署名が合わない・期限切れ・形式が不正なら空）
+  public Optional<TokenClaims> verify(String token) {
+    long now = Instant.now().getEpochSecond();
+    TokenClaims cached = verified.getIfPresent(token);
+    if (cached != null) {
+      return cached.expiresAt() > now ? Optional.of(cached) : Optional.empty();
+    }
+
+    int first = token.indexOf('.');
+    int last = token.lastIndexOf('.');
+    if (first <= 0 || last == first || last == token.length() - 1) {
+      return Optional.empty();
+    }
+    byte[] signature;
+    JsonNode claims;
+    try {
+      signature = Base64.getUrlDecoder().decode(token.substring(last + 1));
+      if (!MessageDigest.isEqual(signature, sign(token.substring(0, last)))
+          || !HEADER.equals(token.substring(0, first))) {
+        return Optional.empty();
+      }
+      claims = objectMapper.readTree(Base64.getUrlDecoder().decode(token.substring(first + 1, last)));
+    } catch (IllegalArgumentException | IOException e) {
+      return Optional.empty();
+    }
+    if (!claims.path("sub").isTextual() || !claims.path("exp").canConvertToLong()) {
+      return Optional.empty();
+    }
+    TokenClaims result;
+    try {
+      result = new TokenClaims(Long.valueOf(claims.get("sub").asText()), claims.get("exp").asLong());
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+    if (result.expiresAt() <= now) {
+      return Optional.empty();
+    }
+    verified.put(token, result);
+    return Optional.of(result);
+  }
+
+  private byte[] sign(String signingInput) {
+    Mac mac = macs.poll();
+    if (mac == null) {
+      mac = copyMac();
+    }
+    byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    macs.offer(mac);
+    return signature;
+  }
+
+  // 初期化済みの Mac を複製する（鍵のパディング計算を省ける。複製できない実装なら作り直す）
+  private Mac copyMac() {
+    try {
+      return (Mac) prototype.clone();
+    } catch (CloneNotSupportedException e) {
+      return newMac();
+    }
+  }
+
+  private static String base64Url(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  // 発行したトークンと有効期限
+  public record IssuedToken(String token, Instant expiresAt) {
+  }
+
+  // トークンの内容（ユーザー ID と有効期限の UNIX 秒）
+  public record TokenClaims(Long userId, long expiresAt) {
+  }
+}
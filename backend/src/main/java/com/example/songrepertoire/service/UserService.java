@@ -2,7 +2,6 @@ package com.example.songrepertoire.service;
 
 import com.example.songrepertoire.model.User;
 import com.example.songrepertoire.repository.UserRepository;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -13,17 +12,17 @@ public class UserService {
   // コンストラクタインジェクション
   private final UserRepository userRepository;
 
-  // パスワードのハッシュ化
-  private final BCryptPasswordEncoder passwordEncoder;
+  // パスワードのハッシュ化（上限付きのプールで計算する）
+  private final PasswordHasher passwordHasher;
 
-  public UserService(UserRepository userRepository) {
+  public UserService(UserRepository userRepository, PasswordHasher passwordHasher) {
     this.userRepository = userRepository;
-    this.passwordEncoder = new BCryptPasswordEncoder();
+    this.passwordHasher = passwordHasher;
   }
 
   // ユーザー登録
   public User register(String email, String rawPassword, String displayName) {
-    String hashed = passwordEncoder.encode(rawPassword);
+    String hashed = passwordHasher.execute(() -> passwordHasher.encode(rawPassword));
     User user = new User();
     user.setEmail(email);
     user.setPasswordHash(hashed);
@@ -31,16 +30,24 @@ public class UserService {
     return userRepository.save(user);
   }
 
-  // ユーザーログイン
+  // ユーザーログイン（BCrypt の照合はここだけで、以降のリクエストはトークンで認証する）
+  // 保存済みのハッシュが設定より弱い strength で作られていれば、照合できたパスワードで作り直す
+  // ユーザーの検索も BCrypt と同じプールで行う（リクエストのスレッドで DB を使うと、open-in-view で接続を持ったまま照合を待つことになる）
   public Optional<User> login(String email, String rawPassword) {
-    Optional<User> userOpt = userRepository.findByEmail(email);
-    if (userOpt.isPresent()) {
-      User user = userOpt.get();
-      if (passwordEncoder.matches(rawPassword, user.getPasswordHash())) {
-        return Optional.of(user);
+    return passwordHasher.execute(() -> {
+      Optional<User> userOpt = userRepository.findByEmail(email);
+      if (userOpt.isPresent()) {
+        User user = userOpt.get();
+        if (passwordHasher.matches(rawPassword, user.getPasswordHash())) {
+          if (passwordHasher.upgradeEncoding(user.getPasswordHash())) {
+            user.setPasswordHash(passwordHasher.encode(rawPassword));
+            user = userRepository.save(user);
+          }
+          return Optional.of(user);
+        }
       }
-    }
-    return Optional.empty();
+      return Optional.empty();
+    });
   }
 
   // 指定したIDのユーザーを取得
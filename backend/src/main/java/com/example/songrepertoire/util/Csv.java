@@ -0,0 +1,75 @@
+package com.example.songrepertoire.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 4180 形式の CSV を1レコードずつ読み書きするユーティリティ
+public final class Csv {
+
+  private Csv() {
+  }
+
+  // 次の1レコードを読み込む（ダブルクォート内の改行・カンマに対応、終端なら null）
+  public static List<String> readRecord(Reader reader) throws IOException {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean any = false;
+    int c;
+    while ((c = reader.read()) != -1) {
+      any = true;
+      if (quoted) {
+        if (c == '"') {
+          reader.mark(1);
+          int next = reader.read();
+          if (next == '"') {
+            field.append('"');
+          } else {
+            quoted = false;
+            if (next != -1) {
+              reader.reset();
+            }
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+    }
+    if (!any) {
+      return null;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  // 1レコード分の CSV 行を組み立てる（末尾に改行を付ける）
+  public static String formatRecord(List<String> fields) {
+    StringBuilder line = new StringBuilder();
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      String value = fields.get(i);
+      if (value == null) {
+        continue;
+      }
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+      } else {
+        line.append(value);
+      }
+    }
+    return line.append("\r\n").toString();
+  }
+}
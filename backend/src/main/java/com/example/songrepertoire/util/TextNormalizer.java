@@ -0,0 +1,208 @@
+package com.example.songrepertoire.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// 検索・重複判定用の文字列正規化（全角/半角・大文字/小文字・カタカナ/ひらがなの表記ゆれを吸収）
+public final class TextNormalizer {
+
+  private static final Map<String, String> ROMAJI = new HashMap<>();
+
+  // 「(feat. X)」「ft. X」などの客演表記（括弧ごと、または末尾まで）
+  private static final Pattern FEATURING_BRACKET =
+      Pattern.compile("[(\\[]\\s*(?:feat\\.?|ft\\.|featuring)(?:\\s|\\b)[^)\\]]*[)\\]]?");
+  private static final Pattern FEATURING_TAIL = Pattern.compile("(?:^|\\s)(?:feat\\.?|ft\\.|featuring)(?:\\s|\\b).*$");
+
+  static {
+    String[][] table = {
+        {"あ", "a"}, {"い", "i"}, {"う", "u"}, {"え", "e"}, {"お", "o"},
+        {"か", "ka"}, {"き", "ki"}, {"く", "ku"}, {"け", "ke"}, {"こ", "ko"},
+        {"さ", "sa"}, {"し", "shi"}, {"す", "su"}, {"せ", "se"}, {"そ", "so"},
+        {"た", "ta"}, {"ち", "chi"}, {"つ", "tsu"}, {"て", "te"}, {"と", "to"},
+        {"な", "na"}, {"に", "ni"}, {"ぬ", "nu"}, {"ね", "ne"}, {"の", "no"},
+        {"は", "ha"}, {"ひ", "hi"}, {"ふ", "fu"}, {"へ", "he"}, {"ほ", "ho"},
+        {"ま", "ma"}, {"み", "mi"}, {"む", "mu"}, {"め", "me"}, {"も", "mo"},
+        {"や", "ya"}, {"ゆ", "yu"}, {"よ", "yo"},
+        {"ら", "ra"}, {"り", "ri"}, {"る", "ru"}, {"れ", "re"}, {"ろ", "ro"},
+        {"わ", "wa"}, {"ゐ", "i"}, {"ゑ", "e"}, {"を", "o"}, {"ん", "n"},
+        {"が", "ga"}, {"ぎ", "gi"}, {"ぐ", "gu"}, {"げ", "ge"}, {"ご", "go"},
+        {"ざ", "za"}, {"じ", "ji"}, {"ず", "zu"}, {"ぜ", "ze"}, {"ぞ", "zo"},
+        {"だ", "da"}, {"ぢ", "ji"}, {"づ", "zu"}, {"で", "de"}, {"ど", "do"},
+        {"ば", "ba"}, {"び", "bi"}, {"ぶ", "bu"}, {"べ", "be"}, {"ぼ", "bo"},
+        {"ぱ", "pa"}, {"ぴ", "pi"}, {"ぷ", "pu"}, {"ぺ", "pe"}, {"ぽ", "po"},
+        {"ゔ", "vu"},
+        {"ぁ", "a"}, {"ぃ", "i"}, {"ぅ", "u"}, {"ぇ", "e"}, {"ぉ", "o"},
+        {"ゃ", "ya"}, {"ゅ", "yu"}, {"ょ", "yo"}, {"ゎ", "wa"},
+        {"きゃ", "kya"}, {"きゅ", "kyu"}, {"きょ", "kyo"},
+        {"しゃ", "sha"}, {"しゅ", "shu"}, {"しぇ", "she"}, {"しょ", "sho"},
+        {"ちゃ", "cha"}, {"ちゅ", "chu"}, {"ちぇ", "che"}, {"ちょ", "cho"},
+        {"にゃ", "nya"}, {"にゅ", "nyu"}, {"にょ", "nyo"},
+        {"ひゃ", "hya"}, {"ひゅ", "hyu"}, {"ひょ", "hyo"},
+        {"みゃ", "mya"}, {"みゅ", "myu"}, {"みょ", "myo"},
+        {"りゃ", "rya"}, {"りゅ", "ryu"}, {"りょ", "ryo"},
+        {"ぎゃ", "gya"}, {"ぎゅ", "gyu"}, {"ぎょ", "gyo"},
+        {"じゃ", "ja"}, {"じゅ", "ju"}, {"じぇ", "je"}, {"じょ", "jo"},
+        {"びゃ", "bya"}, {"びゅ", "byu"}, {"びょ", "byo"},
+        {"ぴゃ", "pya"}, {"ぴゅ", "pyu"}, {"ぴょ", "pyo"},
+        {"ふぁ", "fa"}, {"ふぃ", "fi"}, {"ふぇ", "fe"}, {"ふぉ", "fo"},
+        {"てぃ", "ti"}, {"でぃ", "di"}, {"とぅ", "tu"}, {"どぅ", "du"},
+        {"うぃ", "wi"}, {"うぇ", "we"}, {"うぉ", "wo"},
+        {"ゔぁ", "va"}, {"ゔぃ", "vi"}, {"ゔぇ", "ve"}, {"ゔぉ", "vo"},
+    };
+    for (String[] entry : table) {
+      ROMAJI.put(entry[0], entry[1]);
+    }
+  }
+
+  private TextNormalizer() {
+  }
+
+  // NFKC で全角英数・半角カナをそろえ、小文字化し（既定ロケールによらない）、カタカナをひらがなにして、文字と数字以外を取り除く
+  public static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String nfkc = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    StringBuilder sb = new StringBuilder(nfkc.length());
+    for (int i = 0; i < nfkc.length(); i++) {
+      char c = nfkc.charAt(i);
+      if (c >= 'ァ' && c <= 'ヶ') {
+        sb.append((char) (c - 0x60));
+      } else if (Character.isLetterOrDigit(c)) {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  // 重複判定用の正規化（normalize に加えて客演表記を取り除く）
+  public static String duplicateKey(String text) {
+    if (text == null) {
+      return "";
+    }
+    String nfkc = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    String stripped = FEATURING_TAIL.matcher(FEATURING_BRACKET.matcher(nfkc).replaceAll(" ")).replaceAll("");
+    String normalized = normalize(stripped);
+    // 客演表記だけの文字列は取り除かずに使う
+    return normalized.isEmpty() ? normalize(nfkc) : normalized;
+  }
+
+  // normalize 済み文字列のひらがな部分をローマ字（ヘボン式）に置き換える（ひらがながなければ null）
+  // 長音はかなのとおりに書く（とうきょう → toukyou）
+  public static String toRomaji(String normalized) {
+    return toRomaji(normalized, false);
+  }
+
+  // ローマ字表記の候補（かなのとおりの表記と、長音を1文字にした表記。ひらがながなければ空）
+  // とうきょう は toukyou と tokyo の両方で登録・検索し、どちらの書き方で入力しても一致させる
+  public static List<String> romajiSpellings(String normalized) {
+    String literal = toRomaji(normalized, false);
+    if (literal == null) {
+      return List.of();
+    }
+    String collapsed = toRomaji(normalized, true);
+    return literal.equals(collapsed) ? List.of(literal) : List.of(literal, collapsed);
+  }
+
+  // collapseLongVowels なら「おう」「おお」「うう」の2文字目を書かない（ー はどちらでも書かない）
+  private static String toRomaji(String normalized, boolean collapseLongVowels) {
+    StringBuilder sb = new StringBuilder(normalized.length() * 2);
+    boolean converted = false;
+    boolean sokuon = false;
+    int i = 0;
+    while (i < normalized.length()) {
+      char c = normalized.charAt(i);
+      if (c == 'っ') {
+        sokuon = true;
+        converted = true;
+        i++;
+        continue;
+      }
+      String romaji = null;
+      if (i + 1 < normalized.length()) {
+        romaji = ROMAJI.get(normalized.substring(i, i + 2));
+      }
+      int length = 2;
+      if (romaji == null) {
+        romaji = ROMAJI.get(String.valueOf(c));
+        length = 1;
+      }
+      if (romaji != null) {
+        if (sokuon) {
+          sb.append(romaji.startsWith("ch") ? 't' : romaji.charAt(0));
+        }
+        sb.append(romaji);
+        converted = true;
+        i += length;
+        if (collapseLongVowels) {
+          i = skipLongVowel(normalized, i, romaji.charAt(romaji.length() - 1));
+        }
+      } else {
+        if (c != 'ー') {
+          sb.append(c);
+        }
+        i++;
+      }
+      sokuon = false;
+    }
+    return converted ? sb.toString() : null;
+  }
+
+  // vowel で終わる音の後に続く長音の「う」「お」を読み飛ばした位置（うぃ などの拗音の一部なら飛ばさない）
+  private static int skipLongVowel(String normalized, int i, char vowel) {
+    while (i < normalized.length()) {
+      char next = normalized.charAt(i);
+      boolean longVowel = (vowel == 'o' && (next == 'う' || next == 'お')) || (vowel == 'u' && next == 'う');
+      if (!longVowel || (i + 1 < normalized.length() && ROMAJI.containsKey(normalized.substring(i, i + 2)))) {
+        return i;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  // 文字 n-gram の集合（文字列が n 文字未満なら文字列全体を1つの gram とする）
+  public static Set<String> ngrams(String text, int n) {
+    Set<String> grams = new LinkedHashSet<>();
+    if (text.isEmpty()) {
+      return grams;
+    }
+    if (text.length() < n) {
+      grams.add(text);
+      return grams;
+    }
+    for (int i = 0; i + n <= text.length(); i++) {
+      grams.add(text.substring(i, i + n));
+    }
+    return grams;
+  }
+
+  // 検索用の表記（正規化した文字列と、そのローマ字表記（長音の書き方の両方）。正規化して空なら空）
+  public static List<String> searchForms(String text) {
+    String normalized = normalize(text);
+    if (normalized.isEmpty()) {
+      return List.of();
+    }
+    List<String> forms = new ArrayList<>(3);
+    forms.add(normalized);
+    forms.addAll(romajiSpellings(normalized));
+    return forms;
+  }
+
+  // 検索用の表記1つの gram（bigram と末尾の1文字）
+  // 1文字の検索はその文字で始まる gram を探すので、末尾の文字は bigram の先頭に来ない分を1文字の gram で登録する
+  public static Set<String> searchGrams(String form) {
+    Set<String> grams = ngrams(form, 2);
+    if (form.length() > 1) {
+      grams.add(form.substring(form.length() - 1));
+    }
+    return grams;
+  }
+}
@@ -0,0 +1,101 @@
+-- 組み込みモード（H2）の初期スキーマ
+-- エンティティを変えたら ddl-auto に任せず、ここに V2__... を追加する
+
+create sequence song_seq start with 1 increment by 50;
+create sequence tag_seq start with 1 increment by 50;
+create sequence song_change_seq start with 1 increment by 50;
+create sequence score_entry_seq start with 1 increment by 50;
+create sequence score_rollup_seq start with 1 increment by 50;
+
+create table user (
+  id bigint generated by default as identity,
+  email varchar(255) not null,
+  password_hash varchar(255) not null,
+  display_name varchar(255) not null,
+  created_at timestamp(6) not null,
+  updated_at timestamp(6) not null,
+  primary key (id),
+  constraint uk_user_email unique (email)
+);
+
+create table song (
+  id bigint not null,
+  user_id bigint,
+  title varchar(255) not null,
+  artist varchar(255) not null,
+  category varchar(255),
+  machine varchar(255),
+  key_adjustment integer,
+  score integer,
+  is_favorite boolean,
+  memo varchar(255),
+  jacket varchar(255),
+  created_at timestamp(6),
+  updated_at timestamp(6),
+  primary key (id),
+  constraint fk_song_user foreign key (user_id) references user
+);
+create index idx_song_user_id on song (user_id, id);
+create index idx_song_user_updated_at_id on song (user_id, updated_at, id);
+create index idx_song_user_category_id on song (user_id, category, id);
+create index idx_song_user_artist_id on song (user_id, artist, id);
+create index idx_song_user_machine_id on song (user_id, machine, id);
+create index idx_song_user_favorite_id on song (user_id, is_favorite, id);
+create index idx_song_user_score_id on song (user_id, score, id);
+
+create table tag (
+  id bigint not null,
+  user_id bigint,
+  name varchar(255) not null,
+  primary key (id),
+  constraint uk_tag_user_name unique (user_id, name),
+  constraint fk_tag_user foreign key (user_id) references user
+);
+
+create table song_tag (
+  song_id bigint not null,
+  tag_id bigint not null,
+  constraint fk_song_tag_song foreign key (song_id) references song,
+  constraint fk_song_tag_tag foreign key (tag_id) references tag
+);
+create index idx_song_tag_tag_song on song_tag (tag_id, song_id);
+
+create table song_change (
+  id bigint not null,
+  user_id bigint,
+  song_id bigint not null,
+  deleted boolean not null,
+  changed_at timestamp(6) not null,
+  primary key (id)
+);
+create index idx_song_change_user_id on song_change (user_id, id);
+create index idx_song_change_changed_at on song_change (changed_at);
+
+create table score_entry (
+  id bigint not null,
+  user_id bigint,
+  song_id bigint not null,
+  artist varchar(255) not null,
+  score integer not null,
+  machine varchar(255),
+  key_adjustment integer,
+  recorded_at timestamp(6) not null,
+  primary key (id)
+);
+create index idx_score_entry_song_recorded_at on score_entry (song_id, recorded_at);
+create index idx_score_entry_user_artist_recorded_at on score_entry (user_id, artist, recorded_at);
+
+create table score_rollup (
+  id bigint not null,
+  rollup_key varchar(330) not null,
+  subject varchar(300) not null,
+  granularity enum ('DAY', 'WEEK') not null,
+  period_start date not null,
+  entry_count bigint not null,
+  score_sum bigint not null,
+  min_score integer not null,
+  max_score integer not null,
+  primary key (id),
+  constraint uk_score_rollup_key unique (rollup_key)
+);
+create index idx_score_rollup_subject_period on score_rollup (subject, granularity, period_start);
@@ -0,0 +1,113 @@
+package com.example.songrepertoire.repository;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.service.TagCache;
+import com.example.songrepertoire.service.TagCacheInvalidator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 一覧取得で曲数によらずクエリ数が変わらない（タグの読み込みで N+1 にならない）ことを確かめる
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:query-count;MODE=MySQL;NON_KEYWORDS=USER",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.datasource.hikari.connection-init-sql=SELECT 1",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+    "spring.jpa.show-sql=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TagCache.class, TagCacheInvalidator.class})
+class SongRepositoryQueryCountTest {
+
+  @Autowired
+  private SongRepository songRepository;
+  @Autowired
+  private TagRepository tagRepository;
+  @Autowired
+  private EntityManager entityManager;
+
+  private List<Tag> tags;
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    tags = tagRepository.saveAll(List.of(tag("a"), tag("b"), tag("c")));
+    statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @Test
+  void fullListUsesSameQueryCountForAnySize() {
+    addSongs(10);
+    long small = countQueries(() -> songRepository.findAll(SongSpecifications.ownedBy(null)), 10);
+    addSongs(990);
+    long large = countQueries(() -> songRepository.findAll(SongSpecifications.ownedBy(null)), 1000);
+
+    assertThat(large).isEqualTo(small);
+  }
+
+  @Test
+  void pageUsesSameQueryCountForAnySize() {
+    addSongs(100);
+    long small = countQueries(() -> page(10), 10);
+    long large = countQueries(() -> page(100), 100);
+
+    assertThat(large).isEqualTo(small);
+  }
+
+  private List<Song> page(int size) {
+    Specification<Song> spec = SongSpecifications.ownedBy(null).and(SongSpecifications.matches(new SongFilter()));
+    return songRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(size).all());
+  }
+
+  // 永続化コンテキストを空にしてから一覧を取得し、全曲のタグまで読んだときのクエリ数
+  private long countQueries(Supplier<List<Song>> list, int expectedSize) {
+    entityManager.clear();
+    statistics.clear();
+    List<Song> songs = list.get();
+    int tagCount = 0;
+    for (Song song : songs) {
+      tagCount += song.getTags().size();
+    }
+    assertThat(songs).hasSize(expectedSize);
+    assertThat(tagCount).isEqualTo(expectedSize * 2);
+    return statistics.getPrepareStatementCount();
+  }
+
+  private void addSongs(int count) {
+    List<Song> songs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Song song = new Song();
+      song.setTitle("title " + i);
+      song.setArtist("artist " + (i % 20));
+      song.setTags(new ArrayList<>(List.of(tags.get(i % 3), tags.get((i + 1) % 3))));
+      songs.add(song);
+    }
+    songRepository.saveAll(songs);
+    entityManager.flush();
+  }
+
+  private static Tag tag(String name) {
+    Tag tag = new Tag();
+    tag.setName(name);
+    return tag;
+  }
+}
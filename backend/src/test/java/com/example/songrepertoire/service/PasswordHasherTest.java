@@ -0,0 +1,70 @@
+package com.example.songrepertoire.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// ハッシュ計算のプール（待ち行列があふれたら 429、処理中の例外はそのまま返す）
+class PasswordHasherTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  // スレッド1つ・待ち行列1つ。strength はテストを速くするため最小
+  private final PasswordHasher hasher = new PasswordHasher(meterRegistry, 4, 1, 1);
+
+  @AfterEach
+  void tearDown() {
+    hasher.shutdown();
+  }
+
+  @Test
+  void encodesAndMatchesOnThePool() {
+    String hash = hasher.execute(() -> hasher.encode("secret"));
+
+    assertThat(hasher.execute(() -> hasher.matches("secret", hash))).isTrue();
+    assertThat(hasher.execute(() -> hasher.matches("wrong", hash))).isFalse();
+    assertThat(new PasswordHasher(meterRegistry, 10, 1, 1).upgradeEncoding(hash)).isTrue();
+  }
+
+  @Test
+  void rejectsWithRetryAfterWhenQueueIsFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.execute(() -> {
+      started.countDown();
+      release.await();
+      return "running";
+    }));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.execute(() -> "queued"));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (hasher.queued() < 1 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(hasher.queued()).isEqualTo(1);
+
+    assertThatThrownBy(() -> hasher.execute(() -> "rejected"))
+        .isInstanceOfSatisfying(TooManyRequestsException.class,
+            e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+    assertThat(meterRegistry.get("app.auth.hash.rejected").counter().count()).isEqualTo(1);
+
+    // 断ったあとも、処理中と待ち行列のものは終わる
+    release.countDown();
+    assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+    assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+  }
+
+  @Test
+  void rethrowsRuntimeExceptionFromTask() {
+    assertThatThrownBy(() -> hasher.execute(() -> {
+      throw new IllegalArgumentException("bad");
+    })).isInstanceOf(IllegalArgumentException.class).hasMessage("bad");
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.songrepertoire.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// トークンバケット（GCRA）の取り出し・補充・待ち時間と、キーの掃除・上限での追い出し（時計はテストで進める）
+class RateLimiterTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+  // 1分あたり 60 個（1秒に1個補充）
+  private RateLimiter limiter(int burst, int maxKeys) {
+    return new RateLimiter("test", 60, burst, maxKeys, clock::get);
+  }
+
+  @Test
+  void allowsBurstThenReportsWaitForNextToken() {
+    RateLimiter limiter = limiter(3, 100);
+
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isEqualTo(SECOND);
+    // 断ったリクエストはトークンを使わない
+    assertThat(limiter.tryAcquire("a")).isEqualTo(SECOND);
+    // キーごとに別のバケット
+    assertThat(limiter.tryAcquire("b")).isZero();
+  }
+
+  @Test
+  void refillsOverTimeUpToBurst() {
+    RateLimiter limiter = limiter(3, 100);
+    for (int i = 0; i < 3; i++) {
+      limiter.tryAcquire("a");
+    }
+
+    clock.addAndGet(400 * MILLI);
+    assertThat(limiter.tryAcquire("a")).isEqualTo(600 * MILLI);
+    clock.addAndGet(600 * MILLI);
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isEqualTo(SECOND);
+
+    // 長く空けても burst 個までしか貯まらない
+    clock.addAndGet(100 * SECOND);
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isZero();
+    assertThat(limiter.tryAcquire("a")).isEqualTo(SECOND);
+  }
+
+  @Test
+  void cleanUpDropsOnlyRefilledKeys() {
+    RateLimiter limiter = limiter(3, 100);
+    limiter.tryAcquire("idle");
+    clock.addAndGet(500 * MILLI);
+    limiter.tryAcquire("recent");
+
+    clock.addAndGet(600 * MILLI);
+    limiter.cleanUp();
+
+    assertThat(limiter.size()).isEqualTo(1);
+    // 捨てずに残したキーは制限が続く
+    limiter.tryAcquire("recent");
+    limiter.tryAcquire("recent");
+    assertThat(limiter.tryAcquire("recent")).isPositive();
+  }
+
+  @Test
+  void dropsRefilledKeysBeforeEvictingAtMaxKeys() {
+    RateLimiter limiter = limiter(3, 3);
+    for (String key : new String[] {"a", "b", "c"}) {
+      limiter.tryAcquire(key);
+    }
+
+    clock.addAndGet(2 * SECOND);
+    assertThat(limiter.tryAcquire("d")).isZero();
+
+    assertThat(limiter.size()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsKeysClosestToFullAtMaxKeys() {
+    RateLimiter limiter = limiter(5, 10);
+    // 使い切ったキー
+    for (int i = 0; i < 5; i++) {
+      limiter.tryAcquire("hot");
+    }
+    // 1個ずつ使ったキー（後のものほど満杯に戻るのが遅い）
+    for (int i = 1; i <= 9; i++) {
+      clock.addAndGet(MILLI);
+      limiter.tryAcquire("idle" + i);
+    }
+    assertThat(limiter.size()).isEqualTo(10);
+
+    // 上限に達していても新しいキーは断らない
+    clock.addAndGet(MILLI);
+    assertThat(limiter.tryAcquire("new")).isZero();
+
+    // 満杯に一番近い 1/10（idle1, idle2）を捨てる
+    assertThat(limiter.size()).isEqualTo(9);
+    assertThat(limiter.tryAcquire("hot")).isPositive();
+    for (int i = 0; i < 4; i++) {
+      assertThat(limiter.tryAcquire("idle3")).isZero();
+    }
+    assertThat(limiter.tryAcquire("idle3")).isPositive();
+    assertThat(limiter.size()).isEqualTo(9);
+  }
+}
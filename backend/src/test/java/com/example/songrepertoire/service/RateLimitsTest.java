@@ -0,0 +1,39 @@
+package com.example.songrepertoire.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Retry-After の秒数（切り上げ）と、制限したリクエストの計数
+class RateLimitsTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  // 書き込みは1分に1回まで、ログインは1分に2回まで
+  private final RateLimits rateLimits = new RateLimits(meterRegistry, 30, 10, 2, 2, 1, 1, 1000);
+
+  @Test
+  void acquireReturnsRetryAfterRoundedUpToSeconds() {
+    assertThat(rateLimits.acquire(rateLimits.writeByIp(), "10.0.0.1")).isZero();
+
+    assertThat(rateLimits.acquire(rateLimits.writeByIp(), "10.0.0.1")).isEqualTo(60);
+    assertThat(rateLimits.acquire(rateLimits.writeByIp(), "10.0.0.2")).isZero();
+    assertThat(meterRegistry.get("app.rate.limited").tag("limit", "write-ip").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void checkLoginLimitsPerAccountIgnoringCase() {
+    rateLimits.checkLogin("user@example.com");
+    rateLimits.checkLogin(" USER@example.com ");
+
+    assertThatThrownBy(() -> rateLimits.checkLogin("User@Example.com"))
+        .isInstanceOfSatisfying(TooManyRequestsException.class, e -> {
+          assertThat(e.getRetryAfterSeconds()).isEqualTo(30);
+          assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        });
+    rateLimits.checkLogin("other@example.com");
+  }
+}
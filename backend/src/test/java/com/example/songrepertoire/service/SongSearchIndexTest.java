@@ -0,0 +1,125 @@
+package com.example.songrepertoire.service;
+
+import com.example.songrepertoire.model.Song;
+import com.example.songrepertoire.model.Tag;
+import com.example.songrepertoire.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 検索インデックスのヒットとヒットしないもの（構築は使わないので SongService はなし）
+class SongSearchIndexTest {
+
+  private SongSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new SongSearchIndex(null);
+  }
+
+  @Test
+  void findsSubstringInAnyField() {
+    index.index(song(1, null, "Hello World", "Artist", "memo text"));
+    index.index(song(2, null, "Other", "World Band", null));
+
+    assertThat(ids("world")).containsExactlyInAnyOrder(1L, 2L);
+    assertThat(ids("memo")).containsExactly(1L);
+    assertThat(ids("nothing")).isEmpty();
+  }
+
+  @Test
+  void oneCharacterQueryFindsTheLastCharacter() {
+    index.index(song(1, null, "ab", "x", null));
+    index.index(song(2, null, "cd", "x", null));
+
+    assertThat(ids("b")).containsExactly(1L);
+    assertThat(ids("a")).containsExactly(1L);
+  }
+
+  @Test
+  void bigramsMustAppearInOrder() {
+    index.index(song(1, null, "abab", "x", null));
+    index.index(song(2, null, "ab cd ba", "x", null));
+    index.index(song(3, null, "baba", "x", null));
+
+    assertThat(ids("abab")).containsExactly(1L);
+  }
+
+  @Test
+  void matchesKanaAndBothRomajiSpellings() {
+    index.index(song(1, null, "とうきょう", "x", null));
+    index.index(song(2, null, "Tokyo Drift", "x", null));
+
+    assertThat(ids("tokyo")).containsExactlyInAnyOrder(1L, 2L);
+    assertThat(ids("toukyou")).containsExactly(1L);
+    assertThat(ids("トウキョウ")).containsExactlyInAnyOrder(1L, 2L);
+  }
+
+  @Test
+  void ranksTitleAboveArtistAndTags() {
+    index.index(song(1, null, "x", "piano man", null));
+    index.index(song(2, null, "piano", "x", null));
+    Song tagged = song(3, null, "x", "x", null);
+    tagged.setTags(new ArrayList<>(List.of(tag("piano"))));
+    index.index(tagged);
+
+    assertThat(ids("piano")).containsExactly(2L, 1L, 3L);
+  }
+
+  @Test
+  void separatesOwnersAndFollowsUpdatesAndDeletes() {
+    index.index(song(1, 10L, "shared title", "x", null));
+    index.index(song(2, null, "shared title", "x", null));
+
+    assertThat(index.search(10L, "shared", 0, 10).ids()).containsExactly(1L);
+    assertThat(index.search(null, "shared", 0, 10).ids()).containsExactly(2L);
+
+    index.index(song(1, 10L, "renamed", "x", null));
+    assertThat(index.search(10L, "shared", 0, 10).ids()).isEmpty();
+    assertThat(index.search(10L, "renamed", 0, 10).ids()).containsExactly(1L);
+
+    index.remove(1L);
+    assertThat(index.search(10L, "renamed", 0, 10).ids()).isEmpty();
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  @Test
+  void pagesResultsAndReportsTotal() {
+    for (long id = 1; id <= 5; id++) {
+      index.index(song(id, null, "same title", "x", null));
+    }
+
+    SongSearchIndex.SearchHits hits = index.search(null, "same", 1, 2);
+    // 同点なら新しい曲（ID の大きい順）
+    assertThat(hits.ids()).containsExactly(4L, 3L);
+    assertThat(hits.total()).isEqualTo(5);
+  }
+
+  private List<Long> ids(String query) {
+    return index.search(null, query, 0, 100).ids();
+  }
+
+  private static Song song(long id, Long ownerId, String title, String artist, String memo) {
+    Song song = new Song();
+    song.setId(id);
+    if (ownerId != null) {
+      User owner = new User();
+      owner.setId(ownerId);
+      song.setOwner(owner);
+    }
+    song.setTitle(title);
+    song.setArtist(artist);
+    song.setMemo(memo);
+    return song;
+  }
+
+  private static Tag tag(String name) {
+    Tag tag = new Tag();
+    tag.setName(name);
+    return tag;
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.songrepertoire.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// トークンの発行と検証（改ざん・別の鍵・期限切れ、仮想スレッドからの同時検証）
+class TokenServiceTest {
+
+  private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+  private static TokenService service(String secret, Duration ttl) {
+    return new TokenService(new ObjectMapper(), secret, ttl, 100);
+  }
+
+  @Test
+  void verifiesIssuedToken() {
+    TokenService tokens = service(SECRET, Duration.ofHours(1));
+    TokenService.IssuedToken issued = tokens.issue(42L);
+
+    assertThat(tokens.verify(issued.token())).hasValueSatisfying(claims -> {
+      assertThat(claims.userId()).isEqualTo(42L);
+      assertThat(claims.expiresAt()).isEqualTo(issued.expiresAt().getEpochSecond());
+    });
+    // キャッシュから返しても同じ
+    assertThat(tokens.verify(issued.token())).map(TokenService.TokenClaims::userId).hasValue(42L);
+  }
+
+  @Test
+  void rejectsTamperedOrForeignTokens() {
+    TokenService tokens = service(SECRET, Duration.ofHours(1));
+    String token = tokens.issue(1L).token();
+    String[] parts = token.split("\\.");
+    String otherPayload = tokens.issue(2L).token().split("\\.")[1];
+
+    assertThat(tokens.verify(parts[0] + "." + otherPayload + "." + parts[2])).isEmpty();
+    assertThat(tokens.verify(token.substring(0, token.length() - 2))).isEmpty();
+    assertThat(tokens.verify("not-a-token")).isEmpty();
+    assertThat(service("", Duration.ofHours(1)).verify(token)).isEmpty();
+  }
+
+  @Test
+  void rejectsExpiredToken() {
+    TokenService tokens = service(SECRET, Duration.ofSeconds(-1));
+
+    assertThat(tokens.verify(tokens.issue(1L).token())).isEmpty();
+  }
+
+  @Test
+  void verifiesConcurrentlyOnVirtualThreads() throws Exception {
+    TokenService tokens = service(SECRET, Duration.ofHours(1));
+    List<Future<Boolean>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long id = 1; id <= 500; id++) {
+        long userId = id;
+        results.add(executor.submit(() -> {
+          String token = tokens.issue(userId).token();
+          return tokens.verify(token).map(claims -> claims.userId() == userId).orElse(false);
+        }));
+      }
+    }
+    for (Future<Boolean> result : results) {
+      assertThat(result.get()).isTrue();
+    }
+  }
+}
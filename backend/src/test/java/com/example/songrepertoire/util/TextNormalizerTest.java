@@ -0,0 +1,75 @@
+package com.example.songrepertoire.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 検索・重複判定用の正規化とローマ字表記、gram の切り出し
+class TextNormalizerTest {
+
+  @Test
+  void normalizeFoldsWidthCaseAndKatakana() {
+    assertThat(TextNormalizer.normalize("ＡＢＣ　ﾃｽﾄ")).isEqualTo("abcてすと");
+    assertThat(TextNormalizer.normalize("Hello, World!")).isEqualTo("helloworld");
+    assertThat(TextNormalizer.normalize("カタカナ")).isEqualTo("かたかな");
+    assertThat(TextNormalizer.normalize(null)).isEmpty();
+  }
+
+  @Test
+  void normalizeDoesNotDependOnDefaultLocale() {
+    Locale original = Locale.getDefault();
+    try {
+      Locale.setDefault(Locale.forLanguageTag("tr"));
+      assertThat(TextNormalizer.normalize("TITLE")).isEqualTo("title");
+      assertThat(TextNormalizer.duplicateKey("IRIS")).isEqualTo("iris");
+    } finally {
+      Locale.setDefault(original);
+    }
+  }
+
+  @Test
+  void duplicateKeyDropsFeaturingCredits() {
+    assertThat(TextNormalizer.duplicateKey("Song (feat. Someone)")).isEqualTo("song");
+    assertThat(TextNormalizer.duplicateKey("Song ft. Someone")).isEqualTo("song");
+    // 客演表記だけなら取り除かない
+    assertThat(TextNormalizer.duplicateKey("feat. Someone")).isEqualTo("featsomeone");
+  }
+
+  @Test
+  void toRomajiSpellsKanaLiterally() {
+    assertThat(TextNormalizer.toRomaji("とうきょう")).isEqualTo("toukyou");
+    assertThat(TextNormalizer.toRomaji("きっと")).isEqualTo("kitto");
+    assertThat(TextNormalizer.toRomaji("まっちゃ")).isEqualTo("matcha");
+    assertThat(TextNormalizer.toRomaji("らーめん")).isEqualTo("ramen");
+    assertThat(TextNormalizer.toRomaji("abc")).isNull();
+  }
+
+  @Test
+  void romajiSpellingsIncludeCollapsedLongVowels() {
+    assertThat(TextNormalizer.romajiSpellings("とうきょう")).containsExactly("toukyou", "tokyo");
+    assertThat(TextNormalizer.romajiSpellings("おおさか")).containsExactly("oosaka", "osaka");
+    assertThat(TextNormalizer.romajiSpellings("ゆうき")).containsExactly("yuuki", "yuki");
+    // 拗音の一部の「う」は長音ではない
+    assertThat(TextNormalizer.romajiSpellings("うぃっしゅ")).containsExactly("wisshu");
+    assertThat(TextNormalizer.romajiSpellings("abc")).isEmpty();
+  }
+
+  @Test
+  void ngramsOfShortTextIsTheWholeText() {
+    assertThat(TextNormalizer.ngrams("abcd", 2)).containsExactly("ab", "bc", "cd");
+    assertThat(TextNormalizer.ngrams("abab", 2)).containsExactly("ab", "ba");
+    assertThat(TextNormalizer.ngrams("a", 2)).containsExactly("a");
+    assertThat(TextNormalizer.ngrams("", 2)).isEmpty();
+  }
+
+  @Test
+  void searchFormsAndGrams() {
+    assertThat(TextNormalizer.searchForms("トウキョウ")).containsExactly("とうきょう", "toukyou", "tokyo");
+    assertThat(TextNormalizer.searchForms("！？")).isEmpty();
+    // 末尾の文字は1文字の gram でも登録する
+    assertThat(TextNormalizer.searchGrams("abc")).containsExactly("ab", "bc", "c");
+    assertThat(TextNormalizer.searchGrams("a")).containsExactly("a");
+  }
+}
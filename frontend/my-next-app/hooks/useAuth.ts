@@ -1,6 +1,6 @@
 import { useState } from 'react';
 import { User, RegisterRequest, LoginRequest } from '@/types';
-import { registerUser, loginUser, getUserById } from '@/lib/api/user';
+import { registerUser, loginUser, logoutUser, getUserById } from '@/lib/api/user';
 
 export function useAuth() {
   const [user, setUser] = useState<User | null>(null);
@@ -41,6 +41,7 @@ export function useAuth() {
 
   // ログアウト
   const logout = () => {
+    logoutUser();
     setUser(null);
   };
 
@@ -5,4 +5,62 @@ export const api = axios.create({
   headers: {
     'Content-Type': 'application/json',
   },
-});
\ No newline at end of file
+});
+
+// ログインで受け取ったトークン（再読み込みしてもログインしたままにするため localStorage にも保存する）
+const TOKEN_KEY = 'authToken';
+
+type StoredToken = {
+  token: string;
+  expiresAt: string;
+};
+
+export const setAuthToken = (token: string, expiresAt: string) => {
+  if (typeof window !== 'undefined') {
+    window.localStorage.setItem(TOKEN_KEY, JSON.stringify({ token, expiresAt }));
+  }
+};
+
+export const clearAuthToken = () => {
+  if (typeof window !== 'undefined') {
+    window.localStorage.removeItem(TOKEN_KEY);
+  }
+};
+
+// 有効期限内のトークン（期限切れなら捨てる。期限切れのトークンを送るとすべて 401 になる）
+export const getAuthToken = (): string | null => {
+  if (typeof window === 'undefined') {
+    return null;
+  }
+  const stored = window.localStorage.getItem(TOKEN_KEY);
+  if (!stored) {
+    return null;
+  }
+  try {
+    const { token, expiresAt } = JSON.parse(stored) as StoredToken;
+    if (new Date(expiresAt).getTime() > Date.now()) {
+      return token;
+    }
+  } catch {
+    // 壊れた値は捨てる
+  }
+  clearAuthToken();
+  return null;
+};
+
+// ログイン中はすべてのリクエストに Authorization: Bearer を付ける（付けないと共有レパートリーを操作してしまう）
+api.interceptors.request.use((config) => {
+  const token = getAuthToken();
+  if (token) {
+    config.headers.Authorization = `Bearer ${token}`;
+  }
+  return config;
+});
+
+// トークンが無効（サーバーの再起動で鍵が変わった等）なら捨てて、以降は未ログインとして扱う
+api.interceptors.response.use(undefined, (error) => {
+  if (error?.response?.status === 401 && getAuthToken()) {
+    clearAuthToken();
+  }
+  return Promise.reject(error);
+});
@@ -1,25 +1,22 @@
-import { api } from '@/lib/api/axios';
-import { User, RegisterRequest, LoginRequest } from '@/types';
+import { api, setAuthToken, clearAuthToken } from '@/lib/api/axios';
+import { User, RegisterRequest, LoginRequest, LoginResponse } from '@/types';
 
-// ユーザー登録
+// ユーザー登録（パスワードを URL に残さないよう JSON 本文で送る）
 export const registerUser = async (req: RegisterRequest): Promise<User> => {
-  const params = new URLSearchParams({
-    email: req.email,
-    password: req.password,
-    displayName: req.displayName,
-  });
-  const res = await api.post<User>(`/api/auth/register?${params.toString()}`);
+  const res = await api.post<User>('/api/auth/register', req);
   return res.data;
 };
 
-// ログイン
+// ログイン（受け取ったトークンを保存し、以降のリクエストに付ける）
 export const loginUser = async (req: LoginRequest): Promise<User> => {
-  const params = new URLSearchParams({
-    email: req.email,
-    password: req.password,
-  });
-  const res = await api.post<User>(`/api/auth/login?${params.toString()}`);
-  return res.data;
+  const res = await api.post<LoginResponse>('/api/auth/login', req);
+  setAuthToken(res.data.token, res.data.expiresAt);
+  return res.data.user;
+};
+
+// ログアウト（トークンを捨てる）
+export const logoutUser = () => {
+  clearAuthToken();
 };
 
 // ユーザー情報取得
@@ -76,9 +76,11 @@ export type RegisterRequest = {
   displayName: string;
 };
 
-export type AuthResponse = {
+// ログインの結果（以降のリクエストは token を Authorization: Bearer で送る）
+export type LoginResponse = {
+  token: string;
+  expiresAt: string; // トークンの有効期限（ISO 8601）
   user: User;
-  token?: string; // JWTを使う場合
 };
 
 export type Tag = {